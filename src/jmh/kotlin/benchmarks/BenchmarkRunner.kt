@@ -2,11 +2,8 @@ package benchmarks
 
 import benchmarks.util.*
 import org.openjdk.jmh.results.format.ResultFormatType
-import org.openjdk.jmh.runner.Runner
 import org.openjdk.jmh.runner.RunnerException
 import org.openjdk.jmh.runner.options.OptionsBuilder
-import java.util.concurrent.Phaser
-import kotlin.concurrent.thread
 
 const val iterations = 5
 const val warmupIterations = 3
@@ -14,24 +11,54 @@ const val TIME_IN_SECONDS = 3
 
 @Throws(RunnerException::class)
 fun main() {
-    val phaser = Phaser(2)
-    thread {
-        GraphServer.main(emptyArray())
-        phaser.arrive()
+    // -Dreplay=file only replays the scenario file on all implementations
+    System.getProperty("replay")?.let { scenarioFile ->
+        val replayOptions = OptionsBuilder()
+            .include(ReplayBenchmark::class.java.simpleName)
+            .param("scenarioFile", scenarioFile)
+            .param("successive", System.getProperty("successive", "false"))
+            .jvmArgs("-Xmx50g", "-Xms15g")
+            .forks(1)
+            .resultFormat(ResultFormatType.CSV)
+            .result("replay_results.csv")
+            .build()
+        runBenchmarks(replayOptions)
+        return
     }
-    phaser.arriveAndAwaitAdvance()
-    Thread.sleep(5000) // wait in case graph server needs internal initialization
 
+    // -DopenLoop=true only sweeps the open-loop rates of all implementations
+    if (System.getProperty("openLoop") == "true") {
+        val graphParams = GraphParams.valueOf(System.getProperty("graph", GraphParams.RANDOM_NLOG.name))
+        GraphStore.prepare(listOf(graphParams.source()))
+        val workers = System.getProperty("workers")?.toInt() ?: Runtime.getRuntime().availableProcessors()
+        openLoopSweep(graphParams, workers, System.getProperty("readWeight", "4").toInt())
+        return
+    }
+
+    GraphStore.prepare(GraphParams.values().map { it.source() })
     testGraphs()
 
+    val microOptions = OptionsBuilder()
+        .include(EngineMicroBenchmarks::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("micro_results.csv")
+        .build()
+    runBenchmarks(microOptions)
+
     val dcpOptions = OptionsBuilder()
         .include(SmallCommonDynamicConnectivityRandomBenchmark::class.java.simpleName)
+        // -Dlatencies=true writes the latency percentiles of each operation kind to LATENCY_RESULTS
+        .param("latencies", System.getProperty("latencies", "false"))
+        // -Dretries=true writes the retry counts of the lock-free reads to RETRY_RESULTS
+        .param("retries", System.getProperty("retries", "false"))
         .jvmArgs("-Xmx50g", "-Xms15g")
         .forks(1)
         .resultFormat(ResultFormatType.CSV)
         .result("random_dcp_results.csv")
         .build()
-    Runner(dcpOptions).run()
+    runBenchmarks(dcpOptions)
 
     val lockElisionDcpOptions = OptionsBuilder()
         .include(SmallLockElisionDynamicConnectivityRandomBenchmark::class.java.simpleName)
@@ -40,7 +67,61 @@ fun main() {
         .resultFormat(ResultFormatType.CSV)
         .result("random_dcp_lock_elision_results.csv")
         .build()
-    Runner(lockElisionDcpOptions).run()
+    runBenchmarks(lockElisionDcpOptions)
+
+    val optimisticDcpOptions = OptionsBuilder()
+        .include(SmallOptimisticDynamicConnectivityRandomBenchmark::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("random_dcp_optimistic_results.csv")
+        .build()
+    runBenchmarks(optimisticDcpOptions)
+
+    val shardedDcpOptions = OptionsBuilder()
+        .include(SmallShardedDynamicConnectivityRandomBenchmark::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("random_dcp_sharded_results.csv")
+        .build()
+    runBenchmarks(shardedDcpOptions)
+
+    val fcManyThreadsOptions = OptionsBuilder()
+        .include(SmallFCManyThreadsRandomBenchmark::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("random_fc_many_threads_results.csv")
+        .build()
+    runBenchmarks(fcManyThreadsOptions)
+
+    val fcOversubscribedOptions = OptionsBuilder()
+        .include(SmallFCOversubscribedRandomBenchmark::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("random_fc_oversubscribed_results.csv")
+        .build()
+    runBenchmarks(fcOversubscribedOptions)
+
+    val walOptions = OptionsBuilder()
+        .include(SmallWalRandomBenchmark::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("random_wal_results.csv")
+        .build()
+    runBenchmarks(walOptions)
+
+    val componentFeedOptions = OptionsBuilder()
+        .include(SmallComponentFeedRandomBenchmark::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("random_component_feed_results.csv")
+        .build()
+    runBenchmarks(componentFeedOptions)
 
     val incrementalDcpOptions = OptionsBuilder()
         .include(SmallCommonDynamicConnectivityIncrementalBenchmark::class.java.simpleName)
@@ -49,7 +130,7 @@ fun main() {
         .resultFormat(ResultFormatType.CSV)
         .result("incremental_dcp_results.csv")
         .build()
-    Runner(incrementalDcpOptions).run()
+    runBenchmarks(incrementalDcpOptions)
 
     val incrementalLockElisionDcpOptions = OptionsBuilder()
         .include(SmallLockElisionDynamicConnectivityIncrementalBenchmark::class.java.simpleName)
@@ -58,7 +139,16 @@ fun main() {
         .resultFormat(ResultFormatType.CSV)
         .result("incremental_dcp_lock_elision_results.csv")
         .build()
-    Runner(incrementalLockElisionDcpOptions).run()
+    runBenchmarks(incrementalLockElisionDcpOptions)
+
+    val incrementalOptimisticDcpOptions = OptionsBuilder()
+        .include(SmallOptimisticDynamicConnectivityIncrementalBenchmark::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("incremental_dcp_optimistic_results.csv")
+        .build()
+    runBenchmarks(incrementalOptimisticDcpOptions)
 
     val decrementalDcpOptions = OptionsBuilder()
         .include(SmallCommonDynamicConnectivityDecrementalBenchmark::class.java.simpleName)
@@ -67,7 +157,7 @@ fun main() {
         .resultFormat(ResultFormatType.CSV)
         .result("decremental_dcp_results.csv")
         .build()
-    Runner(decrementalDcpOptions).run()
+    runBenchmarks(decrementalDcpOptions)
 
     val decrementalLockElisionDcpOptions = OptionsBuilder()
         .include(SmallLockElisionDynamicConnectivityDecrementalBenchmark::class.java.simpleName)
@@ -76,7 +166,16 @@ fun main() {
         .resultFormat(ResultFormatType.CSV)
         .result("decremental_dcp_lock_elision_results.csv")
         .build()
-    Runner(decrementalLockElisionDcpOptions).run()
+    runBenchmarks(decrementalLockElisionDcpOptions)
+
+    val decrementalOptimisticDcpOptions = OptionsBuilder()
+        .include(SmallOptimisticDynamicConnectivityDecrementalBenchmark::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("decremental_dcp_optimistic_results.csv")
+        .build()
+    runBenchmarks(decrementalOptimisticDcpOptions)
 
     val twoLevelDcpOptions = OptionsBuilder()
         .include(CommonDynamicConnectivityTwoLevelBenchmark::class.java.simpleName)
@@ -85,7 +184,7 @@ fun main() {
         .resultFormat(ResultFormatType.CSV)
         .result("two_level_dcp_results.csv")
         .build()
-    Runner(twoLevelDcpOptions).run()
+    runBenchmarks(twoLevelDcpOptions)
 
     val twoLevelLockElisionDcpOptions = OptionsBuilder()
         .include(LockElisionDynamicConnectivityTwoLevelBenchmark::class.java.simpleName)
@@ -94,21 +193,39 @@ fun main() {
         .resultFormat(ResultFormatType.CSV)
         .result("two_level_dcp_lock_elision_results.csv")
         .build()
-    Runner(twoLevelLockElisionDcpOptions).run()
-    GraphServer.close()
+    runBenchmarks(twoLevelLockElisionDcpOptions)
+
+    val twoLevelOptimisticDcpOptions = OptionsBuilder()
+        .include(OptimisticDynamicConnectivityTwoLevelBenchmark::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("two_level_dcp_optimistic_results.csv")
+        .build()
+    runBenchmarks(twoLevelOptimisticDcpOptions)
+
+    val twoLevelShardedDcpOptions = OptionsBuilder()
+        .include(ShardedDynamicConnectivityTwoLevelBenchmark::class.java.simpleName)
+        .jvmArgs("-Xmx50g", "-Xms15g")
+        .forks(1)
+        .resultFormat(ResultFormatType.CSV)
+        .result("two_level_dcp_sharded_results.csv")
+        .build()
+    runBenchmarks(twoLevelShardedDcpOptions)
 }
 
 fun testGraphs() {
     for (g in GraphParams.values()) {
-        val graph = GraphServer.getLookup().graphByParams(g)
+        val graph = GraphStore.graph(g)
         testGraphCorrectness(graph, g.name)
     }
 }
 
 fun testGraphCorrectness(graph: Graph, name: String) {
     val n = graph.nodes
-    println("Graph $name with $n nodes and ${graph.edges.size} edges")
-    for (e in graph.edges) {
+    println("Graph $name with $n nodes and ${graph.edgeCount} edges")
+    for (i in 0 until graph.edgeCount) {
+        val e = graph.edge(i)
         check(e.from() in 0 until n) {
             println("${e.from()} >= $n")
         }
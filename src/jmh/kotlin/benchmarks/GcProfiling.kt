@@ -0,0 +1,72 @@
+package benchmarks
+
+import benchmarks.util.WorkerAllocations
+import org.openjdk.jmh.infra.BenchmarkParams
+import org.openjdk.jmh.infra.IterationParams
+import org.openjdk.jmh.profile.GCProfiler
+import org.openjdk.jmh.profile.InternalProfiler
+import org.openjdk.jmh.results.AggregationPolicy
+import org.openjdk.jmh.results.IterationResult
+import org.openjdk.jmh.results.Result
+import org.openjdk.jmh.results.RunResult
+import org.openjdk.jmh.results.ScalarResult
+import org.openjdk.jmh.runner.Runner
+import org.openjdk.jmh.runner.options.Options
+import org.openjdk.jmh.runner.options.OptionsBuilder
+import java.io.File
+
+private const val GC_SUMMARY = "gc_summary.csv"
+// the parameters written to their own columns of the summary
+private val SUMMARY_COLUMNS = setOf("dcpConstructor", "graphParams", "graph")
+
+private const val WORKER_ALLOCATION = "worker.alloc.norm"
+
+/**
+ * Reports the bytes allocated by the executor threads per query, see [WorkerAllocations].
+ */
+class WorkerAllocationProfiler : InternalProfiler {
+    override fun getDescription() = "Bytes allocated by the executor threads per query"
+
+    override fun beforeIteration(benchmarkParams: BenchmarkParams, iterationParams: IterationParams) {
+        WorkerAllocations.reset()
+    }
+
+    override fun afterIteration(benchmarkParams: BenchmarkParams, iterationParams: IterationParams, result: IterationResult): Collection<Result<*>> {
+        val perQuery = WorkerAllocations.reset() ?: return emptyList()
+        return listOf(ScalarResult(WORKER_ALLOCATION, perQuery, "B/query", AggregationPolicy.AVG))
+    }
+}
+
+/**
+ * Runs the benchmarks of [options]. With -Dgc=true the GC profiler and [WorkerAllocationProfiler] are added,
+ * so the result csv also gets the allocations, the GC count and time of each benchmark, and they are summarized in [GC_SUMMARY].
+ * The allocation per operation of the GC profiler includes the setup and excludes the executor threads,
+ * the allocation per query covers only the executor threads running the queries.
+ */
+fun runBenchmarks(options: Options) {
+    if (System.getProperty("gc") != "true") {
+        Runner(options).run()
+        return
+    }
+    val profiled = OptionsBuilder().parent(options).addProfiler(GCProfiler::class.java)
+        .addProfiler(WorkerAllocationProfiler::class.java).build()
+    writeGcSummary(Runner(profiled).run())
+}
+
+private fun writeGcSummary(results: Collection<RunResult>) {
+    val file = File(GC_SUMMARY)
+    if (!file.exists())
+        file.writeText("benchmark,dcpConstructor,graph,params,score,scoreUnit,allocatedBytesPerOp,workerAllocatedBytesPerQuery,gcCount,gcTimeMs\n")
+    file.appendText(buildString {
+        for (result in results) {
+            val params = result.params
+            val graph = params.getParam("graphParams") ?: params.getParam("graph") ?: ""
+            val otherParams = params.paramsKeys.filter { it !in SUMMARY_COLUMNS }.joinToString(";") { "$it=${params.getParam(it)}" }
+            // the profiler labels are prefixed by a dot in the older JMH versions
+            fun secondary(label: String) = result.secondaryResults.entries.find { it.key.endsWith(label) }?.value?.score ?: 0.0
+            append("${params.benchmark},${params.getParam("dcpConstructor") ?: ""},$graph,$otherParams,")
+            append("${result.primaryResult.score},${result.primaryResult.scoreUnit},")
+            append("${secondary("gc.alloc.rate.norm")},${secondary(WORKER_ALLOCATION)},${secondary("gc.count")},${secondary("gc.time")}\n")
+        }
+    })
+}
@@ -0,0 +1,102 @@
+package benchmarks
+
+import benchmarks.util.Graph
+import benchmarks.util.downloadOrCreateAndParseGraph
+import benchmarks.util.graphCacheFile
+import benchmarks.util.graphCacheKey
+import benchmarks.util.mapGraphCache
+
+val USA_ROADS_GRAPH_PARAMS = Triple("USA-ROADS", "gr gz", "http://users.diag.uniroma1.it/challenge9/data/USA-road-d/USA-road-d.COL.gr.gz")
+val RANDOM_N_GRAPH_PARAMS = Triple("RANDOM-N", "rand", "400000 400000")
+val RANDOM_2N_GRAPH_PARAMS = Triple("RANDOM-2N", "rand", "300000 600000")
+val RANDOM_NLOG_GRAPH_PARAMS = Triple("RANDOM-NLOG", "rand", "100000 1600000")
+val RANDOM_NSQRT_GRAPH_PARAMS = Triple("RANDOM-NSQRT", "rand", "20000 1600000")
+val RANDOM_DIVIDED_GRAPH_PARAMS = Triple("RANDOM-DIVIDED", "rand_divided", "10 10000 160000")
+val TWITTER_GRAPH_PARAMS = Triple("TWITTER", "txt gz", "http://snap.stanford.edu/data/twitter_combined.txt.gz")
+val STANFORD_WEB_GRAPH_PARAMS = Triple("STANFORD-WEB", "txt gz", "http://snap.stanford.edu/data/web-Stanford.txt.gz")
+
+enum class GraphParams {
+    RANDOM_NLOG,
+    USA_ROADS,
+    RANDOM_N,
+    RANDOM_2N,
+    RANDOM_NSQRT,
+    TWITTER,
+    STANFORD_WEB,
+    RANDOM_DIVIDED
+}
+
+fun GraphParams.source() = when (this) {
+    GraphParams.RANDOM_DIVIDED -> RANDOM_DIVIDED_GRAPH_PARAMS
+    GraphParams.USA_ROADS -> USA_ROADS_GRAPH_PARAMS
+    GraphParams.RANDOM_N -> RANDOM_N_GRAPH_PARAMS
+    GraphParams.RANDOM_2N -> RANDOM_2N_GRAPH_PARAMS
+    GraphParams.RANDOM_NLOG -> RANDOM_NLOG_GRAPH_PARAMS
+    GraphParams.RANDOM_NSQRT -> RANDOM_NSQRT_GRAPH_PARAMS
+    GraphParams.TWITTER -> TWITTER_GRAPH_PARAMS
+    GraphParams.STANFORD_WEB -> STANFORD_WEB_GRAPH_PARAMS
+}
+
+// the synthetic graphs are generated locally and are of the same size as the downloaded ones
+enum class LargeGraph(val offline: Boolean) {
+    KRON(false),
+    RANDOM(false),
+    ROAD(false),
+    LIVE_JOURNAL(false),
+    KRON_SYNTHETIC(true),
+    RANDOM_SYNTHETIC(true),
+    ROAD_SYNTHETIC(true),
+    LIVE_JOURNAL_SYNTHETIC(true),
+}
+
+fun LargeGraph.source() = when (this) {
+    LargeGraph.KRON -> Triple("KRON", "graph bz2", "https://www.cc.gatech.edu/dimacs10/archive/data/kronecker/kron_g500-logn21.graph.bz2")
+    LargeGraph.RANDOM -> Triple("RANDOM-LARGE", "graph bz2", "https://www.cc.gatech.edu/dimacs10/archive/data/er/er-fact1.5-scale22.graph.bz2")
+    LargeGraph.ROAD -> Triple("USA-ROADS-FULL", "gr gz", "http://www.diag.uniroma1.it/challenge9/data/USA-road-d/USA-road-d.USA.gr.gz")
+    LargeGraph.LIVE_JOURNAL -> Triple("LIVE-JOURNAL", "txt gz", "http://snap.stanford.edu/data/soc-LiveJournal1.txt.gz")
+    LargeGraph.KRON_SYNTHETIC -> Triple("KRON-RMAT", "rmat", "21 48 0.57 0.19 0.19")
+    LargeGraph.RANDOM_SYNTHETIC -> Triple("RANDOM-LARGE-ER", "er", "4194304 50660619")
+    LargeGraph.ROAD_SYNTHETIC -> Triple("USA-ROADS-GRID", "grid", "4890 4890 0.6")
+    LargeGraph.LIVE_JOURNAL_SYNTHETIC -> Triple("LIVE-JOURNAL-RMAT", "rmat", "22 12 0.45 0.15 0.15")
+}
+
+// -Doffline=true runs the large benchmarks on the synthetic graphs, without network access
+fun largeGraphs(): List<LargeGraph> {
+    val offline = System.getProperty("offline", "false").toBoolean()
+    return LargeGraph.values().filter { it.offline == offline }
+}
+
+fun loadGraph(params: Triple<String, String, String>): Graph {
+    return loadGraph(params.first, params.second, params.third)
+}
+
+fun loadGraph(graphName: String, graphType: String, graphUrl: String): Graph {
+    println("Loading $graphName $graphType")
+    return downloadOrCreateAndParseGraph(graphName, graphType, graphUrl)
+}
+
+/**
+ * Graphs are shared between the runner and the JMH forks through read-only memory-mapped cache files,
+ * so a fork gets a graph without copying it. The runner prepares the files with [prepare] before the forks start,
+ * a fork builds a missing file itself.
+ */
+object GraphStore {
+    fun graph(params: GraphParams): Graph = graph(params.source())
+
+    fun graph(graph: LargeGraph): Graph = graph(graph.source())
+
+    // downloads or parses the graphs whose cache files are missing, stale or corrupted
+    fun prepare(sources: List<Triple<String, String, String>>) {
+        for (source in sources)
+            graph(source, verify = true)
+    }
+
+    private fun graph(source: Triple<String, String, String>, verify: Boolean = false): Graph {
+        val cacheFile = graphCacheFile(source.first)
+        val cacheKey = graphCacheKey(source.first, source.second, source.third)
+        mapGraphCache(cacheFile, cacheKey, verify)?.let { return it }
+        // writes the cache file
+        loadGraph(source)
+        return mapGraphCache(cacheFile, cacheKey) ?: error("Cannot map $cacheFile")
+    }
+}
@@ -31,7 +31,7 @@ open class SmallCommonDynamicConnectivityIncrementalBenchmark {
 
     @Setup(Level.Trial)
     fun initialize() {
-        val graph = GraphServer.getLookup().graphByParams(graphParams)
+        val graph = GraphStore.graph(graphParams)
         scenario = IncrementalScenarioGenerator()
             .generate(graph, workers)
     }
@@ -74,7 +74,7 @@ open class SmallLockElisionDynamicConnectivityIncrementalBenchmark {
 
     @Setup(Level.Trial)
     fun initialize() {
-        val graph = GraphServer.getLookup().graphByParams(graphParams)
+        val graph = GraphStore.graph(graphParams)
         scenario = IncrementalScenarioGenerator()
             .generate(graph, workers)
     }
@@ -88,4 +88,45 @@ open class SmallLockElisionDynamicConnectivityIncrementalBenchmark {
     fun flushOut() {
         println()
     }
-}
\ No newline at end of file
+}
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class SmallOptimisticDynamicConnectivityIncrementalBenchmark {
+    @Param
+    open var graphParams: GraphParams = GraphParams.values()[0]
+
+    lateinit var scenario: Scenario
+    lateinit var scenarioExecutor: SuccessiveScenarioExecutor
+
+    @Param
+    open var dcpConstructor: OptimisticDCPConstructor = OptimisticDCPConstructor.values()[0]
+
+    @Param("1", "2", "4", "8", "16", "32", "64", "128", "144")
+    open var workers: Int = 0
+
+    @Benchmark
+    fun benchmark() {
+        scenarioExecutor.run()
+    }
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        val graph = GraphStore.graph(graphParams)
+        scenario = IncrementalScenarioGenerator()
+            .generate(graph, workers)
+    }
+
+    @Setup(Level.Invocation)
+    fun initializeInvocation() {
+        scenarioExecutor = SuccessiveScenarioExecutor(scenario, dcpConstructor.constructor())
+    }
+
+    @Setup(Level.Iteration)
+    fun flushOut() {
+        println()
+    }
+}
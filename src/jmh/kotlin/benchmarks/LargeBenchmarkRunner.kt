@@ -2,75 +2,72 @@ package benchmarks
 
 import benchmarks.util.Graph
 import org.openjdk.jmh.results.format.ResultFormatType
-import org.openjdk.jmh.runner.Runner
 import org.openjdk.jmh.runner.RunnerException
 import org.openjdk.jmh.runner.options.OptionsBuilder
-import java.util.concurrent.Phaser
-import kotlin.concurrent.thread
 
 @Throws(RunnerException::class)
 fun main() {
-    val phaser = Phaser(2)
-    thread {
-        LargeGraphServer.main(emptyArray())
-        phaser.arrive()
-    }
-    phaser.arriveAndAwaitAdvance()
-    Thread.sleep(5000) // wait in case graph server needs internal initialization
+    val graphs = largeGraphs()
+    GraphStore.prepare(graphs.map { it.source() })
+    val graphNames = graphs.map { it.name }.toTypedArray()
 
     val dcpOptions = OptionsBuilder()
         .include(LargeCommonDynamicConnectivityRandomBenchmark::class.java.simpleName)
         .jvmArgs("-Xmx300g", "-Xms300g", "-XX:+UseNUMA")
+        .param("graph", *graphNames)
         .forks(1)
         .resultFormat(ResultFormatType.CSV)
         .result("large_random_dcp_results.csv")
         .build()
-    Runner(dcpOptions).run()
+    runBenchmarks(dcpOptions)
 
     val lockElisionDcpOptions = OptionsBuilder()
         .include(LargeLockElisionDynamicConnectivityRandomBenchmark::class.java.simpleName)
         .jvmArgs("-XX:+UseRTMLocking", "-XX:RTMRetryCount=5", "-Xmx300g", "-Xms300g", "-XX:+UseNUMA")
+        .param("graph", *graphNames)
         .forks(1)
         .resultFormat(ResultFormatType.CSV)
         .result("large_random_dcp_lock_elision_results.csv")
         .build()
-    Runner(lockElisionDcpOptions).run()
+    runBenchmarks(lockElisionDcpOptions)
 
     val incrementalDcpOptions = OptionsBuilder()
         .include(LargeCommonDynamicConnectivityIncrementalBenchmark::class.java.simpleName)
         .jvmArgs("-Xmx300g", "-Xms300g", "-XX:+UseNUMA")
+        .param("graph", *graphNames)
         .forks(1)
         .resultFormat(ResultFormatType.CSV)
         .result("large_incremental_dcp_results.csv")
         .build()
-    Runner(incrementalDcpOptions).run()
+    runBenchmarks(incrementalDcpOptions)
 
     val incrementalLockElisionDcpOptions = OptionsBuilder()
         .include(LargeLockElisionDynamicConnectivityIncrementalBenchmark::class.java.simpleName)
         .jvmArgs("-XX:+UseRTMLocking", "-XX:RTMRetryCount=5", "-Xmx300g", "-Xms300g", "-XX:+UseNUMA")
+        .param("graph", *graphNames)
         .forks(1)
         .resultFormat(ResultFormatType.CSV)
         .result("large_incremental_dcp_lock_elision_results.csv")
         .build()
-    Runner(incrementalLockElisionDcpOptions).run()
+    runBenchmarks(incrementalLockElisionDcpOptions)
 
     val decrementalDcpOptions = OptionsBuilder()
         .include(LargeCommonDynamicConnectivityDecrementalBenchmark::class.java.simpleName)
         .jvmArgs("-Xmx300g", "-Xms300g", "-XX:+UseNUMA")
+        .param("graph", *graphNames)
         .forks(1)
         .resultFormat(ResultFormatType.CSV)
         .result("large_decremental_dcp_results.csv")
         .build()
-    Runner(decrementalDcpOptions).run()
+    runBenchmarks(decrementalDcpOptions)
 
     val decrementalLockElisionDcpOptions = OptionsBuilder()
         .include(LargeLockElisionDynamicConnectivityDecrementalBenchmark::class.java.simpleName)
         .jvmArgs("-XX:+UseRTMLocking", "-XX:RTMRetryCount=5", "-Xmx300g", "-Xms300g", "-XX:+UseNUMA")
+        .param("graph", *graphNames)
         .forks(1)
         .resultFormat(ResultFormatType.CSV)
         .result("large_decremental_dcp_lock_elision_results.csv")
         .build()
-    Runner(decrementalLockElisionDcpOptions).run()
-
-    LargeGraphServer.close()
+    runBenchmarks(decrementalLockElisionDcpOptions)
 }
\ No newline at end of file
@@ -32,7 +32,7 @@ open class LargeCommonDynamicConnectivityDecrementalBenchmark {
 
     @Setup(Level.Trial)
     fun initialize() {
-        val graph = LargeGraphServer.getLookup().graphByParams(graph)
+        val graph = GraphStore.graph(graph)
         scenario = DecrementalScenarioGenerator()
             .generate(graph, MAX_WORKERS)
     }
@@ -75,7 +75,7 @@ open class LargeLockElisionDynamicConnectivityDecrementalBenchmark {
 
     @Setup(Level.Trial)
     fun initialize() {
-        val graph = LargeGraphServer.getLookup().graphByParams(graph)
+        val graph = GraphStore.graph(graph)
         scenario = DecrementalScenarioGenerator()
             .generate(graph, MAX_WORKERS)
     }
@@ -32,7 +32,7 @@ open class LargeCommonDynamicConnectivityIncrementalBenchmark {
 
     @Setup(Level.Trial)
     fun initialize() {
-        val graph = LargeGraphServer.getLookup().graphByParams(graph)
+        val graph = GraphStore.graph(graph)
         scenario = IncrementalScenarioGenerator()
             .generate(graph, MAX_WORKERS)
     }
@@ -75,7 +75,7 @@ open class LargeLockElisionDynamicConnectivityIncrementalBenchmark {
 
     @Setup(Level.Trial)
     fun initialize() {
-        val graph = LargeGraphServer.getLookup().graphByParams(graph)
+        val graph = GraphStore.graph(graph)
         scenario = IncrementalScenarioGenerator()
             .generate(graph, MAX_WORKERS)
     }
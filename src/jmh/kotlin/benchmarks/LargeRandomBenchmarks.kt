@@ -2,7 +2,7 @@ package benchmarks
 
 import benchmarks.util.DCPConstructor
 import benchmarks.util.LockElisionDCPConstructor
-import benchmarks.util.Scenario
+import benchmarks.util.StreamingScenario
 import benchmarks.util.constructor
 import benchmarks.util.executors.ScenarioExecutor
 import benchmarks.util.generators.FullyRandomScenarioGenerator
@@ -22,7 +22,7 @@ open class LargeCommonDynamicConnectivityRandomBenchmark {
     @Param
     open var graph: LargeGraph = LargeGraph.values()[0]
 
-    lateinit var scenario: Scenario
+    lateinit var scenario: StreamingScenario
     lateinit var scenarioExecutor: ScenarioExecutor
 
     @Param
@@ -38,12 +38,12 @@ open class LargeCommonDynamicConnectivityRandomBenchmark {
 
     @Setup(Level.Trial)
     fun initialize() {
-        val graph = LargeGraphServer.getLookup().graphByParams(graph)
-        println("Graph: ${this.graph}, |V| = ${graph.nodes}, |E| = ${graph.edges.size}")
+        val graph = GraphStore.graph(graph)
+        println("Graph: ${this.graph}, |V| = ${graph.nodes}, |E| = ${graph.edgeCount}")
         val updateWeight = 1
         val readWeight = readWeight
         scenario = FullyRandomScenarioGenerator()
-            .generate(graph, MAX_WORKERS, LARGE_SCENARIO_SIZE / MAX_WORKERS, updateWeight, readWeight, true, 1)
+            .stream(graph, MAX_WORKERS, LARGE_SCENARIO_SIZE / MAX_WORKERS, updateWeight, readWeight, true, 1)
     }
 
     @Setup(Level.Invocation)
@@ -70,7 +70,7 @@ open class LargeLockElisionDynamicConnectivityRandomBenchmark {
     @Param
     open var graph: LargeGraph = LargeGraph.values()[0]
 
-    lateinit var scenario: Scenario
+    lateinit var scenario: StreamingScenario
     lateinit var scenarioExecutor: ScenarioExecutor
 
     @Param
@@ -86,11 +86,11 @@ open class LargeLockElisionDynamicConnectivityRandomBenchmark {
 
     @Setup(Level.Trial)
     fun initialize() {
-        val graph = LargeGraphServer.getLookup().graphByParams(graph)
+        val graph = GraphStore.graph(graph)
         val updateWeight = 1
         val readWeight = readWeight
         scenario = FullyRandomScenarioGenerator()
-            .generate(graph, MAX_WORKERS, LARGE_SCENARIO_SIZE / MAX_WORKERS, updateWeight, readWeight, true, 1)
+            .stream(graph, MAX_WORKERS, LARGE_SCENARIO_SIZE / MAX_WORKERS, updateWeight, readWeight, true, 1)
     }
 
     @Setup(Level.Invocation)
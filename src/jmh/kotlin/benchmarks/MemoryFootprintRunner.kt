@@ -0,0 +1,98 @@
+package benchmarks
+
+import benchmarks.util.*
+import java.io.File
+import java.lang.management.BufferPoolMXBean
+import java.lang.management.ManagementFactory
+import java.lang.ref.Reference
+import javax.management.ObjectName
+
+private const val FOOTPRINT_RESULTS = "footprint_results.csv"
+private const val FOOTPRINT_CLASS_RESULTS = "footprint_class_results.csv"
+// the classes with the largest retained size written for each run
+private const val TOP_CLASSES = 20
+
+private val HISTOGRAM_LINE = Regex("""^\s*\d+:\s+(\d+)\s+(\d+)\s+(\S+)""")
+
+private class ClassFootprint(val instances: Long, val bytes: Long)
+
+/**
+ * Measures the heap retained by each implementation after adding all edges of a graph.
+ * The retained heap is the difference of the live object histograms (which run a full GC) before and after the build,
+ * the graph itself is a memory-mapped cache and is not on the heap.
+ * Off-heap is the growth of the direct buffer pools.
+ *
+ * Runs on [GraphParams], or on [largeGraphs] with -Dlarge=true, the heap should fit the largest graph.
+ */
+fun main() {
+    val large = System.getProperty("large", "false").toBoolean()
+    GraphStore.prepare(if (large) largeGraphs().map { it.source() } else GraphParams.values().map { it.source() })
+    val graphs: List<Pair<String, () -> Graph>> = if (large)
+        largeGraphs().map { graph -> graph.name to { GraphStore.graph(graph) } }
+    else
+        GraphParams.values().map { graph -> graph.name to { GraphStore.graph(graph) } }
+
+    for ((name, load) in graphs) {
+        val graph = load()
+        for (dcpConstructor in DCPConstructor.values()) {
+            val before = liveHistogram()
+            val offHeapBefore = directMemory()
+            val dcp = dcpConstructor.constructor()(graph.nodes, 2)
+            for (i in 0 until graph.edgeCount) {
+                val edge = graph.edge(i)
+                dcp.addEdge(edge.from(), edge.to())
+            }
+            val after = liveHistogram()
+            val offHeap = directMemory() - offHeapBefore
+            Reference.reachabilityFence(dcp)
+
+            val retained = after.mapValues { (className, footprint) ->
+                val initial = before[className]
+                ClassFootprint(footprint.instances - (initial?.instances ?: 0), footprint.bytes - (initial?.bytes ?: 0))
+            }
+            val bytes = retained.values.sumOf { it.bytes }
+            println("$dcpConstructor on $name: ${bytes / graph.nodes} bytes per vertex, ${bytes / maxOf(1, graph.edgeCount)} bytes per edge")
+            writeFootprint(dcpConstructor, name, graph, bytes, offHeap)
+            writeClassFootprints(dcpConstructor, name, retained)
+        }
+    }
+}
+
+// GC.class_histogram of jcmd, which counts only the live objects
+private fun liveHistogram(): Map<String, ClassFootprint> {
+    val histogram = ManagementFactory.getPlatformMBeanServer().invoke(
+        ObjectName("com.sun.management:type=DiagnosticCommand"),
+        "gcClassHistogram",
+        arrayOf<Any>(arrayOf<String>()),
+        arrayOf(Array<String>::class.java.name)
+    ) as String
+    val result = HashMap<String, ClassFootprint>()
+    for (line in histogram.lineSequence()) {
+        val match = HISTOGRAM_LINE.find(line) ?: continue
+        val (instances, bytes, className) = match.destructured
+        result[className] = ClassFootprint(instances.toLong(), bytes.toLong())
+    }
+    return result
+}
+
+private fun directMemory() = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean::class.java).sumOf { it.memoryUsed }
+
+private fun writeFootprint(dcpConstructor: DCPConstructor, graphName: String, graph: Graph, bytes: Long, offHeap: Long) {
+    val file = File(FOOTPRINT_RESULTS)
+    if (!file.exists())
+        file.writeText("dcpConstructor,graph,vertices,edges,heapBytes,offHeapBytes,bytesPerVertex,bytesPerEdge\n")
+    val total = bytes + offHeap
+    file.appendText("$dcpConstructor,$graphName,${graph.nodes},${graph.edgeCount},$bytes,$offHeap," +
+            "${total.toDouble() / graph.nodes},${total.toDouble() / maxOf(1, graph.edgeCount)}\n")
+}
+
+private fun writeClassFootprints(dcpConstructor: DCPConstructor, graphName: String, retained: Map<String, ClassFootprint>) {
+    val file = File(FOOTPRINT_CLASS_RESULTS)
+    if (!file.exists())
+        file.writeText("dcpConstructor,graph,class,instances,bytes\n")
+    file.appendText(buildString {
+        retained.entries.sortedByDescending { it.value.bytes }.take(TOP_CLASSES).forEach { (className, footprint) ->
+            append("$dcpConstructor,$graphName,$className,${footprint.instances},${footprint.bytes}\n")
+        }
+    })
+}
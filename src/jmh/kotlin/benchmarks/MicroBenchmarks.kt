@@ -0,0 +1,282 @@
+package benchmarks
+
+import benchmarks.util.DCPConstructor
+import benchmarks.util.constructor
+import connectivity.sequential.general.DynamicConnectivity
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+private const val PAIRS = 1 shl 10
+private const val SIDE = 32
+private const val DEEP_SIZE = 1 shl 20
+private const val CONNECTED_QUERIES = 1 shl 16
+// per side, so that sampling rarely finds the only crossing non-tree edge
+private const val INTERNAL_NON_TREE_EDGES = 4 * SIDE
+
+/**
+ * [PAIRS] pairs of sides of [SIDE] vertices, each side is a path of spanning edges.
+ * With [bridged] the sides of a pair are connected by a bridge, which has a replacement with [replacement].
+ * The non-tree edges inside the sides make sampling for a replacement fail.
+ */
+internal class ClusterPairs(
+    dcpConstructor: DCPConstructor,
+    private val bridged: Boolean,
+    private val replacement: Boolean,
+    internalNonTreeEdges: Int
+) {
+    val dcp: DynamicConnectivity = dcpConstructor.constructor()(2 * SIDE * PAIRS, 2)
+    // the current spanning bridge of each pair and the non-tree one
+    val bridge = LongArray(PAIRS)
+    val otherBridge = LongArray(PAIRS)
+
+    init {
+        val random = Random(PAIRS)
+        for (pair in 0 until PAIRS) {
+            for (i in 0 until SIDE - 1) {
+                dcp.addEdge(a(pair, i), a(pair, i + 1))
+                dcp.addEdge(b(pair, i), b(pair, i + 1))
+            }
+            if (bridged) {
+                bridge[pair] = packPair(a(pair, 0), b(pair, 0))
+                dcp.addEdge(a(pair, 0), b(pair, 0))
+                if (replacement) {
+                    otherBridge[pair] = packPair(a(pair, SIDE - 1), b(pair, SIDE - 1))
+                    dcp.addEdge(a(pair, SIDE - 1), b(pair, SIDE - 1))
+                }
+            }
+            repeat(internalNonTreeEdges) {
+                val (i, j) = distantVertices(random)
+                dcp.addEdge(a(pair, i), a(pair, j))
+                dcp.addEdge(b(pair, i), b(pair, j))
+            }
+        }
+    }
+
+    fun a(pair: Int, i: Int) = 2 * SIDE * pair + i
+
+    fun b(pair: Int, i: Int) = 2 * SIDE * pair + SIDE + i
+
+    // two vertices of a side that are not adjacent in its path
+    fun distantVertices(random: Random): Pair<Int, Int> {
+        val i = random.nextInt(SIDE - 2)
+        return i to random.nextInt(i + 2, SIDE)
+    }
+
+    // the removed spanning bridge is added back as a non-tree edge, so the other one becomes spanning
+    fun swapBridges(pair: Int) {
+        val removed = bridge[pair]
+        bridge[pair] = otherBridge[pair]
+        otherBridge[pair] = removed
+    }
+}
+
+private fun packPair(u: Int, v: Int) = (u.toLong() shl 32) or v.toLong()
+private fun Long.first() = (this ushr 32).toInt()
+private fun Long.second() = toInt()
+
+@State(Scope.Thread)
+open class ConnectedState {
+    @Param
+    open var dcpConstructor: DCPConstructor = DCPConstructor.values()[0]
+
+    // SHALLOW: components of 2 * SIDE vertices, DEEP: a single path of DEEP_SIZE vertices
+    @Param("SHALLOW", "DEEP")
+    open var treaps = "SHALLOW"
+
+    lateinit var dcp: DynamicConnectivity
+    // pairs of vertices of the same component
+    val queries = LongArray(CONNECTED_QUERIES)
+    var next = 0
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        val random = Random(CONNECTED_QUERIES)
+        if (treaps == "DEEP") {
+            dcp = dcpConstructor.constructor()(DEEP_SIZE, 2)
+            for (v in 0 until DEEP_SIZE - 1)
+                dcp.addEdge(v, v + 1)
+            for (i in queries.indices)
+                queries[i] = packPair(random.nextInt(DEEP_SIZE), random.nextInt(DEEP_SIZE))
+        } else {
+            val pairs = ClusterPairs(dcpConstructor, bridged = true, replacement = false, internalNonTreeEdges = 0)
+            dcp = pairs.dcp
+            for (i in queries.indices) {
+                val pair = random.nextInt(PAIRS)
+                queries[i] = packPair(pairs.a(pair, random.nextInt(SIDE)), pairs.b(pair, random.nextInt(SIDE)))
+            }
+        }
+    }
+}
+
+@State(Scope.Thread)
+open class NonTreeAddState {
+    @Param
+    open var dcpConstructor: DCPConstructor = DCPConstructor.values()[0]
+
+    internal lateinit var pairs: ClusterPairs
+    private val random = Random(1)
+    var u = 0
+    var v = 0
+
+    @Setup(Level.Iteration)
+    fun initialize() {
+        pairs = ClusterPairs(dcpConstructor, bridged = true, replacement = false, internalNonTreeEdges = 0)
+    }
+
+    // an edge inside a side that is not in its path
+    @Setup(Level.Invocation)
+    fun chooseEdge() {
+        val pair = random.nextInt(PAIRS)
+        val (i, j) = pairs.distantVertices(random)
+        u = pairs.a(pair, i)
+        v = pairs.a(pair, j)
+    }
+
+    @TearDown(Level.Invocation)
+    fun removeEdge() {
+        pairs.dcp.removeEdge(u, v)
+    }
+}
+
+@State(Scope.Thread)
+open class SpanningAddState {
+    @Param
+    open var dcpConstructor: DCPConstructor = DCPConstructor.values()[0]
+
+    internal lateinit var pairs: ClusterPairs
+    private val random = Random(2)
+    var u = 0
+    var v = 0
+
+    @Setup(Level.Iteration)
+    fun initialize() {
+        pairs = ClusterPairs(dcpConstructor, bridged = false, replacement = false, internalNonTreeEdges = 0)
+    }
+
+    // an edge between the sides of a pair, which are not connected
+    @Setup(Level.Invocation)
+    fun chooseEdge() {
+        val pair = random.nextInt(PAIRS)
+        u = pairs.a(pair, random.nextInt(SIDE))
+        v = pairs.b(pair, random.nextInt(SIDE))
+    }
+
+    @TearDown(Level.Invocation)
+    fun removeEdge() {
+        pairs.dcp.removeEdge(u, v)
+    }
+}
+
+/**
+ * Removes the spanning bridge of a random pair and restores the pair afterwards.
+ * With [replacement] the only non-tree edge of the sides is the other bridge, so the first sample finds it,
+ * with [fullSearch] the sides also have [INTERNAL_NON_TREE_EDGES] internal non-tree edges,
+ * without a replacement the removal splits the pair.
+ */
+internal class BridgeRemoval(dcpConstructor: DCPConstructor, private val replacement: Boolean, fullSearch: Boolean) {
+    val pairs = ClusterPairs(dcpConstructor, true, replacement, if (fullSearch) INTERNAL_NON_TREE_EDGES else 0)
+    private val random = Random(3)
+    var pair = 0
+    val u get() = pairs.bridge[pair].first()
+    val v get() = pairs.bridge[pair].second()
+
+    fun choosePair() {
+        pair = random.nextInt(PAIRS)
+    }
+
+    fun restore() {
+        pairs.dcp.addEdge(u, v)
+        if (replacement) pairs.swapBridges(pair)
+    }
+}
+
+@State(Scope.Thread)
+open class SampledReplacementState {
+    @Param
+    open var dcpConstructor: DCPConstructor = DCPConstructor.values()[0]
+
+    internal lateinit var removal: BridgeRemoval
+
+    @Setup(Level.Iteration)
+    fun initialize() {
+        removal = BridgeRemoval(dcpConstructor, replacement = true, fullSearch = false)
+    }
+
+    @Setup(Level.Invocation)
+    fun choosePair() = removal.choosePair()
+
+    @TearDown(Level.Invocation)
+    fun restore() = removal.restore()
+}
+
+@State(Scope.Thread)
+open class FullReplacementSearchState {
+    @Param
+    open var dcpConstructor: DCPConstructor = DCPConstructor.values()[0]
+
+    internal lateinit var removal: BridgeRemoval
+
+    // the searches promote the internal edges, so the pairs are rebuilt for each iteration
+    @Setup(Level.Iteration)
+    fun initialize() {
+        removal = BridgeRemoval(dcpConstructor, replacement = true, fullSearch = true)
+    }
+
+    @Setup(Level.Invocation)
+    fun choosePair() = removal.choosePair()
+
+    @TearDown(Level.Invocation)
+    fun restore() = removal.restore()
+}
+
+@State(Scope.Thread)
+open class SplitState {
+    @Param
+    open var dcpConstructor: DCPConstructor = DCPConstructor.values()[0]
+
+    internal lateinit var removal: BridgeRemoval
+
+    @Setup(Level.Iteration)
+    fun initialize() {
+        removal = BridgeRemoval(dcpConstructor, replacement = false, fullSearch = false)
+    }
+
+    @Setup(Level.Invocation)
+    fun choosePair() = removal.choosePair()
+
+    @TearDown(Level.Invocation)
+    fun restore() = removal.restore()
+}
+
+/**
+ * Single operations on prepared states, each benchmark isolates one path of the implementations.
+ * The state changed by an operation is restored outside of the measurement.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class EngineMicroBenchmarks {
+    @Benchmark
+    fun connected(state: ConnectedState): Boolean {
+        val query = state.queries[state.next]
+        state.next = (state.next + 1) and (CONNECTED_QUERIES - 1)
+        return state.dcp.connected(query.first(), query.second())
+    }
+
+    @Benchmark
+    fun nonTreeAdd(state: NonTreeAddState) = state.pairs.dcp.addEdge(state.u, state.v)
+
+    @Benchmark
+    fun spanningAdd(state: SpanningAddState) = state.pairs.dcp.addEdge(state.u, state.v)
+
+    @Benchmark
+    fun sampledReplacement(state: SampledReplacementState) = state.removal.let { it.pairs.dcp.removeEdge(it.u, it.v) }
+
+    @Benchmark
+    fun fullReplacementSearch(state: FullReplacementSearchState) = state.removal.let { it.pairs.dcp.removeEdge(it.u, it.v) }
+
+    @Benchmark
+    fun split(state: SplitState) = state.removal.let { it.pairs.dcp.removeEdge(it.u, it.v) }
+}
@@ -0,0 +1,77 @@
+package benchmarks
+
+import benchmarks.util.*
+import benchmarks.util.executors.OpenLoopScenarioExecutor
+import benchmarks.util.generators.FullyRandomScenarioGenerator
+import java.io.File
+
+private const val OPEN_LOOP_RESULTS = "open_loop_results.csv"
+private const val RUN_SECONDS = 10
+private const val WARMUP_SECONDS = 5
+private const val INITIAL_RATE = 100_000.0
+// bisection steps between the last sustained rate and the first saturated one
+private const val REFINE_STEPS = 3
+// a rate is sustained if at least this share of it is achieved and p99 stays below the limit
+private const val SUSTAINED_SHARE = 0.95
+private const val P99_LIMIT_NANOS = 10_000_000L
+
+/**
+ * Finds the saturation rate of each implementation with [OpenLoopScenarioExecutor]:
+ * the target rate is doubled until it is not sustained and then refined by bisection.
+ * Every run is written to [OPEN_LOOP_RESULTS].
+ */
+fun openLoopSweep(graphParams: GraphParams, workers: Int, readWeight: Int) {
+    val graph = GraphStore.graph(graphParams)
+    for (dcpConstructor in DCPConstructor.values()) {
+        fun sustained(rate: Double, seconds: Int, write: Boolean = true): Boolean {
+            // a bit more queries than scheduled, so that the scenario does not end before the schedule
+            val queriesPerThread = (rate * seconds / workers * 1.1).toInt() + 1
+            val scenario = FullyRandomScenarioGenerator()
+                .stream(graph, workers, queriesPerThread, 1, readWeight, true, 1)
+            val latencies = OperationLatencies(workers, false)
+            val executor = OpenLoopScenarioExecutor(
+                scenario,
+                { size -> dcpConstructor.constructor()(size, workers + 1) },
+                rate,
+                seconds * 1_000_000_000L,
+                latencies
+            )
+            val achieved = executor.run()
+            val all = LatencyHistogram()
+            latencies.merged().values.forEach { all.add(it) }
+            val result = achieved >= SUSTAINED_SHARE * rate && all.percentile(0.99) <= P99_LIMIT_NANOS
+            if (write) writeRun(dcpConstructor, graphParams, workers, readWeight, rate, achieved, all, result)
+            return result
+        }
+
+        sustained(INITIAL_RATE, WARMUP_SECONDS, write = false)
+        var low = 0.0
+        var high = INITIAL_RATE
+        while (sustained(high, RUN_SECONDS)) {
+            low = high
+            high *= 2
+        }
+        repeat(REFINE_STEPS) {
+            val middle = (low + high) / 2
+            if (sustained(middle, RUN_SECONDS)) low = middle else high = middle
+        }
+        println("$dcpConstructor on $graphParams with $workers workers sustains ${low.toLong()} queries/s")
+    }
+}
+
+private fun writeRun(
+    dcpConstructor: DCPConstructor,
+    graphParams: GraphParams,
+    workers: Int,
+    readWeight: Int,
+    rate: Double,
+    achieved: Double,
+    latencies: LatencyHistogram,
+    sustained: Boolean
+) {
+    val file = File(OPEN_LOOP_RESULTS)
+    if (!file.exists())
+        file.writeText("dcpConstructor,graphParams,workers,readWeight,targetRate,achievedRate,p50,p90,p99,p99.9,max,sustained\n")
+    val percentiles = listOf(0.5, 0.9, 0.99, 0.999).joinToString(",") { latencies.percentile(it).toString() }
+    file.appendText("$dcpConstructor,$graphParams,$workers,$readWeight,${rate.toLong()},${achieved.toLong()},$percentiles,${latencies.max},$sustained\n")
+}
@@ -3,10 +3,25 @@ package benchmarks
 import benchmarks.util.*
 import benchmarks.util.executors.ScenarioExecutor
 import benchmarks.util.generators.*
+import connectivity.CONNECTED_TRIES
+import connectivity.concurrent.RetryHistogram
+import connectivity.concurrent.general.major.ComponentChangeFeed
+import connectivity.concurrent.general.major.MajorDynamicConnectivity
+import connectivity.concurrent.general.major_coarse_grained.MajorCoarseGrainedDynamicConnectivity
+import connectivity.concurrent.general.sharded.ShardPartitioning
+import connectivity.concurrent.general.sharded.ShardedDynamicConnectivity
+import connectivity.concurrent.general.wal.LoggedDynamicConnectivity
+import connectivity.concurrent.general.wal.WriteAheadLog
 import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.IterationParams
+import org.openjdk.jmh.runner.IterationType
+import java.io.File
 import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
 
 private const val TOTAL_SCENARIO_SIZE = 15_000_000
+const val LATENCY_RESULTS = "random_latency_results.csv"
+const val RETRY_RESULTS = "random_retry_results.csv"
 
 @State(Scope.Thread)
 @BenchmarkMode(Mode.AverageTime)
@@ -17,7 +32,7 @@ open class SmallCommonDynamicConnectivityRandomBenchmark {
     @Param
     open var graphParams: GraphParams = GraphParams.values()[0]
 
-    lateinit var scenario: Scenario
+    lateinit var scenario: StreamingScenario
     lateinit var scenarioExecutor: ScenarioExecutor
 
     @Param
@@ -29,6 +44,18 @@ open class SmallCommonDynamicConnectivityRandomBenchmark {
     @Param("4", "99")
     open var readWeight = 1
 
+    // records the latency of every query in the measurement iterations to LATENCY_RESULTS
+    @Param("false")
+    open var latencies = false
+
+    // records the retries of the lock-free reads in the measurement iterations to RETRY_RESULTS
+    @Param("false")
+    open var retries = false
+
+    private var operationLatencies: OperationLatencies? = null
+    private var retryHistogram: RetryHistogram? = null
+    private var measurement = false
+
     @Benchmark
     fun benchmark() {
         scenarioExecutor.run()
@@ -36,26 +63,62 @@ open class SmallCommonDynamicConnectivityRandomBenchmark {
 
     @Setup(Level.Trial)
     fun initialize() {
-        val graph = GraphServer.getLookup().graphByParams(graphParams)
+        val graph = GraphStore.graph(graphParams)
         val updateWeight = if (readWeight != 9999) 1 else 0
         val readWeight = if (readWeight != 9999) readWeight else 1
         scenario = FullyRandomScenarioGenerator()
-            .generate(graph, workers, TOTAL_SCENARIO_SIZE / workers, updateWeight, readWeight, true, 1)
+            .stream(graph, workers, TOTAL_SCENARIO_SIZE / workers, updateWeight, readWeight, true, 1)
+        if (latencies)
+            operationLatencies = OperationLatencies(workers, dcpConstructor.reportsForestChanges())
+        if (retries)
+            retryHistogram = RetryHistogram(CONNECTED_TRIES)
     }
 
     @Setup(Level.Invocation)
     fun initializeInvocation() {
+        val recorder = operationLatencies?.takeIf { measurement }
+        val constructor = if (recorder != null) dcpConstructor.constructor(recorder) else dcpConstructor.constructor()
+        val histogram = retryHistogram?.takeIf { measurement }
         scenarioExecutor = ScenarioExecutor(
             scenario,
-            { size -> dcpConstructor.constructor()(size, workers + 1) })
+            { size -> constructor(size, workers + 1).also { dcp -> histogram?.let { dcp.attachRetryHistogram(it) } } },
+            latencies = recorder)
     }
 
     @Setup(Level.Iteration)
-    fun flushOut() {
+    fun flushOut(iteration: IterationParams) {
         println()
+        measurement = iteration.type == IterationType.MEASUREMENT
+    }
+
+    @TearDown(Level.Trial)
+    fun writeLatencies() {
+        operationLatencies?.appendCsv(
+            LATENCY_RESULTS,
+            javaClass.simpleName,
+            "graphParams=$graphParams;dcpConstructor=$dcpConstructor;workers=$workers;readWeight=$readWeight"
+        )
+        retryHistogram?.let {
+            appendRetries(it, javaClass.simpleName, "graphParams=$graphParams;dcpConstructor=$dcpConstructor;workers=$workers;readWeight=$readWeight")
+        }
     }
 }
 
+// a row per retry count and one for the reads that fell back to the locked path, nothing for the implementations without retries
+private fun appendRetries(histogram: RetryHistogram, benchmark: String, params: String) {
+    val counts = histogram.counts()
+    if (counts.sum() + histogram.fallbacks() == 0L) return
+    val file = File(RETRY_RESULTS)
+    val header = !file.exists()
+    file.appendText(buildString {
+        if (header)
+            append("benchmark,params,retries,count\n")
+        for (retries in counts.indices)
+            append("$benchmark,$params,$retries,${counts[retries]}\n")
+        append("$benchmark,$params,fallback,${histogram.fallbacks()}\n")
+    })
+}
+
 @State(Scope.Thread)
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.MILLISECONDS)
@@ -65,7 +128,7 @@ open class SmallLockElisionDynamicConnectivityRandomBenchmark {
     @Param
     open var graphParams: GraphParams = GraphParams.values()[0]
 
-    lateinit var scenario: Scenario
+    lateinit var scenario: StreamingScenario
     lateinit var scenarioExecutor: ScenarioExecutor
 
     @Param
@@ -84,11 +147,106 @@ open class SmallLockElisionDynamicConnectivityRandomBenchmark {
 
     @Setup(Level.Trial)
     fun initialize() {
-        val graph = GraphServer.getLookup().graphByParams(graphParams)
+        val graph = GraphStore.graph(graphParams)
+        val updateWeight = if (readWeight != 9999) 1 else 0
+        val readWeight = if (readWeight != 9999) readWeight else 1
+        scenario = FullyRandomScenarioGenerator()
+            .stream(graph, workers, TOTAL_SCENARIO_SIZE / workers, updateWeight, readWeight, true, 1)
+    }
+
+    @Setup(Level.Invocation)
+    fun initializeInvocation() {
+        scenarioExecutor = ScenarioExecutor(scenario, dcpConstructor.constructor())
+    }
+
+    @Setup(Level.Iteration)
+    fun flushOut() {
+        println()
+    }
+}
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class SmallShardedDynamicConnectivityRandomBenchmark {
+    @Param
+    open var graphParams: GraphParams = GraphParams.values()[0]
+
+    lateinit var scenario: StreamingScenario
+    lateinit var scenarioExecutor: ScenarioExecutor
+
+    @Param("1", "2", "4", "8", "16")
+    open var shards: Int = 0
+
+    @Param
+    open var partitioning: ShardPartitioning = ShardPartitioning.values()[0]
+
+    @Param("1", "2", "4", "8", "16", "32", "64", "128", "144")
+    open var workers: Int = 0
+
+    @Param("4", "99")
+    open var readWeight = 1
+
+    @Benchmark
+    fun benchmark() {
+        scenarioExecutor.run()
+    }
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        val graph = GraphStore.graph(graphParams)
+        scenario = FullyRandomScenarioGenerator()
+            .stream(graph, workers, TOTAL_SCENARIO_SIZE / workers, 1, readWeight, true, 1)
+    }
+
+    @Setup(Level.Invocation)
+    fun initializeInvocation() {
+        scenarioExecutor = ScenarioExecutor(
+            scenario,
+            { size -> ShardedDynamicConnectivity(size, shards, partitioning) })
+    }
+
+    @Setup(Level.Iteration)
+    fun flushOut() {
+        println()
+    }
+}
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class SmallOptimisticDynamicConnectivityRandomBenchmark {
+    @Param
+    open var graphParams: GraphParams = GraphParams.values()[0]
+
+    lateinit var scenario: StreamingScenario
+    lateinit var scenarioExecutor: ScenarioExecutor
+
+    @Param
+    open var dcpConstructor: OptimisticDCPConstructor = OptimisticDCPConstructor.values()[0]
+
+    @Param("1", "2", "4", "8", "16", "32", "64", "128", "144")
+    open var workers: Int = 0
+
+    @Param("4", "99")
+    open var readWeight = 1
+
+    @Benchmark
+    fun benchmark() {
+        scenarioExecutor.run()
+    }
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        val graph = GraphStore.graph(graphParams)
         val updateWeight = if (readWeight != 9999) 1 else 0
         val readWeight = if (readWeight != 9999) readWeight else 1
         scenario = FullyRandomScenarioGenerator()
-            .generate(graph, workers, TOTAL_SCENARIO_SIZE / workers, updateWeight, readWeight, true, 1)
+            .stream(graph, workers, TOTAL_SCENARIO_SIZE / workers, updateWeight, readWeight, true, 1)
     }
 
     @Setup(Level.Invocation)
@@ -100,4 +258,248 @@ open class SmallLockElisionDynamicConnectivityRandomBenchmark {
     fun flushOut() {
         println()
     }
-}
\ No newline at end of file
+}
+
+// flat combining registers threads dynamically, so it is not limited by the number of hardware threads
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class SmallFCManyThreadsRandomBenchmark {
+    @Param
+    open var graphParams: GraphParams = GraphParams.values()[0]
+
+    lateinit var scenario: StreamingScenario
+    lateinit var scenarioExecutor: ScenarioExecutor
+
+    @Param("FCReadOptimizedDynamicConnectivity", "NBFCDynamicConnectivity", "FCParallelReadsDynamicConnectivity")
+    open var dcpConstructor: DCPConstructor = DCPConstructor.values()[0]
+
+    @Param("144", "192", "256", "384", "512")
+    open var workers: Int = 0
+
+    @Param("4", "99")
+    open var readWeight = 1
+
+    @Benchmark
+    fun benchmark() {
+        scenarioExecutor.run()
+    }
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        val graph = GraphStore.graph(graphParams)
+        scenario = FullyRandomScenarioGenerator()
+            .stream(graph, workers, TOTAL_SCENARIO_SIZE / workers, 1, readWeight, true, 1)
+    }
+
+    @Setup(Level.Invocation)
+    fun initializeInvocation() {
+        scenarioExecutor = ScenarioExecutor(
+            scenario,
+            { size -> dcpConstructor.constructor()(size, workers + 1) })
+    }
+
+    @Setup(Level.Iteration)
+    fun flushOut() {
+        println()
+    }
+}
+
+// more workers than hardware threads, compares parking waiters with pure spinning
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class SmallFCOversubscribedRandomBenchmark {
+    @Param
+    open var graphParams: GraphParams = GraphParams.values()[0]
+
+    lateinit var scenario: StreamingScenario
+    lateinit var scenarioExecutor: ScenarioExecutor
+
+    @Param("FCReadOptimizedDynamicConnectivity", "NBFCDynamicConnectivity", "FCParallelReadsDynamicConnectivity")
+    open var dcpConstructor: DCPConstructor = DCPConstructor.values()[0]
+
+    // workers per hardware thread
+    @Param("1", "2")
+    open var oversubscription: Int = 0
+
+    @Param("true", "false")
+    open var parkWaiters: Boolean = true
+
+    @Param("4", "99")
+    open var readWeight = 1
+
+    private var workers = 0
+
+    @Benchmark
+    fun benchmark() {
+        scenarioExecutor.run()
+    }
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        workers = oversubscription * Runtime.getRuntime().availableProcessors()
+        val graph = GraphStore.graph(graphParams)
+        scenario = FullyRandomScenarioGenerator()
+            .stream(graph, workers, TOTAL_SCENARIO_SIZE / workers, 1, readWeight, true, 1)
+    }
+
+    @Setup(Level.Invocation)
+    fun initializeInvocation() {
+        scenarioExecutor = ScenarioExecutor(
+            scenario,
+            { size -> dcpConstructor.constructor(parkWaiters)(size, workers + 1) })
+    }
+
+    @Setup(Level.Iteration)
+    fun flushOut() {
+        println()
+    }
+}
+
+// durable updates through the write-ahead log, a negative commit interval runs without logging
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class SmallWalRandomBenchmark {
+    @Param
+    open var graphParams: GraphParams = GraphParams.values()[0]
+
+    lateinit var scenario: StreamingScenario
+    lateinit var scenarioExecutor: ScenarioExecutor
+
+    @Param("MajorDynamicConnectivity", "MajorCoarseGrainedDynamicConnectivity")
+    open var dcpConstructor: DCPConstructor = DCPConstructor.values()[0]
+
+    // in microseconds
+    @Param("-1", "0", "100", "1000")
+    open var commitInterval: Long = 0
+
+    @Param("1", "4", "16", "64", "144")
+    open var workers: Int = 0
+
+    @Param("4", "99")
+    open var readWeight = 1
+
+    private var logFile: File? = null
+    private var log: WriteAheadLog? = null
+
+    @Benchmark
+    fun benchmark() {
+        scenarioExecutor.run()
+    }
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        val graph = GraphStore.graph(graphParams)
+        scenario = FullyRandomScenarioGenerator()
+            .stream(graph, workers, TOTAL_SCENARIO_SIZE / workers, 1, readWeight, true, 1)
+    }
+
+    @Setup(Level.Invocation)
+    fun initializeInvocation() {
+        var logged: LoggedDynamicConnectivity? = null
+        scenarioExecutor = ScenarioExecutor(
+            scenario,
+            { size -> LoggedDynamicConnectivity(dcpConstructor.constructor()(size, workers + 1)).also { logged = it } })
+        // the initial graph is not logged
+        if (commitInterval >= 0) {
+            val file = File.createTempFile("updates", ".wal").also { logFile = it }
+            log = WriteAheadLog(file.path, TimeUnit.MICROSECONDS.toNanos(commitInterval)).also { logged!!.log = it }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    fun closeLog() {
+        log?.close()
+        logFile?.delete()
+        log = null
+        logFile = null
+    }
+
+    @Setup(Level.Iteration)
+    fun flushOut() {
+        println()
+    }
+}
+
+// the overhead of publishing component changes, a consumer thread drains the feed during the run
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class SmallComponentFeedRandomBenchmark {
+    @Param
+    open var graphParams: GraphParams = GraphParams.values()[0]
+
+    lateinit var scenario: StreamingScenario
+    lateinit var scenarioExecutor: ScenarioExecutor
+
+    @Param("MajorDynamicConnectivity", "MajorCoarseGrainedDynamicConnectivity")
+    open var dcpConstructor: DCPForModificationsConstructor = DCPForModificationsConstructor.values()[0]
+
+    @Param("true", "false")
+    open var feed: Boolean = false
+
+    @Param("1", "2", "4", "8", "16", "32", "64", "128", "144")
+    open var workers: Int = 0
+
+    @Param("4", "99")
+    open var readWeight = 1
+
+    @Volatile
+    private var draining = false
+    private var consumer: Thread? = null
+
+    @Benchmark
+    fun benchmark() {
+        scenarioExecutor.run()
+    }
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        val graph = GraphStore.graph(graphParams)
+        scenario = FullyRandomScenarioGenerator()
+            .stream(graph, workers, TOTAL_SCENARIO_SIZE / workers, 1, readWeight, true, 1)
+    }
+
+    @Setup(Level.Invocation)
+    fun initializeInvocation() {
+        val changes = if (feed) ComponentChangeFeed() else null
+        if (changes != null) {
+            draining = true
+            consumer = thread(isDaemon = true) {
+                val batch = LongArray(1024)
+                while (draining)
+                    if (changes.drain(batch) == 0) Thread.onSpinWait()
+            }
+        }
+        scenarioExecutor = ScenarioExecutor(scenario, { size ->
+            when (dcpConstructor) {
+                DCPForModificationsConstructor.MajorDynamicConnectivity -> MajorDynamicConnectivity(size, changes)
+                DCPForModificationsConstructor.MajorCoarseGrainedDynamicConnectivity ->
+                    MajorCoarseGrainedDynamicConnectivity(size, forestListener = changes)
+                else -> error("No change feed for $dcpConstructor")
+            }
+        })
+    }
+
+    @TearDown(Level.Invocation)
+    fun stopConsumer() {
+        draining = false
+        consumer?.join()
+        consumer = null
+    }
+
+    @Setup(Level.Iteration)
+    fun flushOut() {
+        println()
+    }
+}
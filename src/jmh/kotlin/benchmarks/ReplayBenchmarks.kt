@@ -0,0 +1,54 @@
+package benchmarks
+
+import benchmarks.util.*
+import benchmarks.util.executors.ScenarioExecutor
+import benchmarks.util.executors.SuccessiveScenarioExecutor
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+// replays a scenario file written by writeScenario, so that all implementations get identical queries
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class ReplayBenchmark {
+    @Param("scenario.bin")
+    open var scenarioFile = ""
+
+    // the threads share the queries of the first thread, as in the incremental and decremental benchmarks
+    @Param("false")
+    open var successive = false
+
+    @Param
+    open var dcpConstructor: DCPConstructor = DCPConstructor.values()[0]
+
+    lateinit var scenario: MappedScenario
+    private var scenarioExecutor: ScenarioExecutor? = null
+    private var successiveScenarioExecutor: SuccessiveScenarioExecutor? = null
+
+    @Benchmark
+    fun benchmark() {
+        scenarioExecutor?.run()
+        successiveScenarioExecutor?.run()
+    }
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        scenario = mapScenario(scenarioFile)
+    }
+
+    @Setup(Level.Invocation)
+    fun initializeInvocation() {
+        val constructor = { size: Int -> dcpConstructor.constructor()(size, scenario.threads + 1) }
+        if (successive)
+            successiveScenarioExecutor = SuccessiveScenarioExecutor(scenario, constructor)
+        else
+            scenarioExecutor = ScenarioExecutor(scenario.streaming(), constructor)
+    }
+
+    @Setup(Level.Iteration)
+    fun flushOut() {
+        println()
+    }
+}
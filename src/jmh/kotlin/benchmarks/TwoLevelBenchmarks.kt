@@ -4,6 +4,8 @@ import benchmarks.util.*
 import benchmarks.util.executors.ScenarioExecutor
 import benchmarks.util.generators.RandomScenarioGenerator
 import benchmarks.util.generators.TwoLevelScenarioGenerator
+import connectivity.concurrent.general.sharded.ShardPartitioning
+import connectivity.concurrent.general.sharded.ShardedDynamicConnectivity
 import org.openjdk.jmh.annotations.*
 import java.util.concurrent.TimeUnit
 
@@ -85,4 +87,84 @@ open class LockElisionDynamicConnectivityTwoLevelBenchmark {
     fun flushOut() {
         println()
     }
-}
\ No newline at end of file
+}
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class ShardedDynamicConnectivityTwoLevelBenchmark {
+    lateinit var scenario: Scenario
+    lateinit var scenarioExecutor: ScenarioExecutor
+
+    @Param("1", "2", "4", "8", "16")
+    open var shards: Int = 0
+
+    @Param
+    open var partitioning: ShardPartitioning = ShardPartitioning.values()[0]
+
+    @Param("1", "2", "4", "8", "16", "32", "64", "128")
+    open var workers: Int = 0
+
+    @Benchmark
+    fun benchmark() {
+        scenarioExecutor.run()
+    }
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        scenario = TwoLevelScenarioGenerator()
+            .generate(components, nodesPerComponent, workers, 2000000 / workers)
+    }
+
+    @Setup(Level.Invocation)
+    fun initializeInvocation() {
+        scenarioExecutor = ScenarioExecutor(
+            scenario,
+            { size -> ShardedDynamicConnectivity(size, shards, partitioning) })
+    }
+
+    @Setup(Level.Iteration)
+    fun flushOut() {
+        println()
+    }
+}
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = iterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = warmupIterations, time = TIME_IN_SECONDS, timeUnit = TimeUnit.SECONDS)
+open class OptimisticDynamicConnectivityTwoLevelBenchmark {
+    lateinit var scenario: Scenario
+    lateinit var scenarioExecutor: ScenarioExecutor
+
+    @Param
+    open var dcpConstructor: OptimisticDCPConstructor = OptimisticDCPConstructor.values()[0]
+
+    @Param("1", "2", "4", "8", "16", "32", "64", "128")
+    open var workers: Int = 0
+
+
+    @Benchmark
+    fun benchmark() {
+        scenarioExecutor.run()
+    }
+
+    @Setup(Level.Trial)
+    fun initialize() {
+        scenario = TwoLevelScenarioGenerator()
+            .generate(components, nodesPerComponent, workers, 2000000 / workers)
+    }
+
+    @Setup(Level.Invocation)
+    fun initializeInvocation() {
+        scenarioExecutor = ScenarioExecutor(scenario, dcpConstructor.constructor())
+    }
+
+    @Setup(Level.Iteration)
+    fun flushOut() {
+        println()
+    }
+}
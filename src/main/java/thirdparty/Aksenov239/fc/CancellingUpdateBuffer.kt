@@ -0,0 +1,77 @@
+package thirdparty.Aksenov239.fc
+
+import connectivity.*
+import connectivity.sequential.general.BatchedDynamicConnectivity
+
+/**
+ * Collects the updates of one combining pass, cancels an addition and a removal of the same edge
+ * and drops the updates that do not change the graph. The rest is applied in the order:
+ * non-tree deletions, additions, spanning deletions, so that the replacement searches scan fewer edges
+ * and may find the added ones. The spanning deletions are removed together, so the components they leave
+ * are searched for the replacements once for the whole pass.
+ * All the requests of a pass are concurrent, so any order of them is linearizable.
+ */
+class CancellingUpdateBuffer {
+    // edge shl 1, the lowest bit is set for additions
+    private var keys = LongArray(16)
+    private var size = 0
+
+    private var additions = LongArray(16)
+    private var removals = LongArray(16)
+
+    fun add(isAddition: Boolean, u: Int, v: Int) {
+        if (size == keys.size)
+            keys = keys.copyOf(2 * size)
+        keys[size++] = (makeEdge(u, v) shl 1) or (if (isAddition) 1L else 0L)
+    }
+
+    fun apply(sdg: BatchedDynamicConnectivity) {
+        if (size == 0) return
+        if (additions.size < size) {
+            additions = LongArray(keys.size)
+            removals = LongArray(keys.size)
+        }
+        keys.sort(0, size)
+
+        var additionCount = 0
+        var removalCount = 0
+        var i = 0
+        while (i < size) {
+            val edge = keys[i] shr 1
+            var j = i + 1
+            while (j < size && keys[j] shr 1 == edge)
+                j++
+            // removals of the edge go before its additions
+            val hasRemoval = keys[i] and 1L == 0L
+            val hasAddition = keys[j - 1] and 1L == 1L
+            i = j
+
+            // an addition and a removal of the same edge cancel each other:
+            // remove first if the edge is present and add first otherwise
+            if (hasAddition && hasRemoval) continue
+
+            val u = edge.u()
+            val v = edge.v()
+            val present = sdg.containsEdge(u, v)
+            if (hasAddition) {
+                if (!present)
+                    additions[additionCount++] = edge
+            } else if (present) {
+                if (sdg.isTreeEdge(u, v)) {
+                    removals[removalCount++] = edge
+                } else {
+                    // non-tree deletions are cheap and are no longer scanned by the replacement searches
+                    sdg.removeEdge(u, v)
+                }
+            }
+        }
+        size = 0
+
+        for (k in 0 until additionCount) {
+            val edge = additions[k]
+            sdg.addEdge(edge.u(), edge.v())
+        }
+
+        sdg.removeEdges(removals, removalCount)
+    }
+}
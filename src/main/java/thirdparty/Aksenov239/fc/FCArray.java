@@ -1,11 +1,16 @@
 package thirdparty.Aksenov239.fc;
 
 import sun.misc.Unsafe;
+import thirdparty.Aksenov239.BlackHole;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Created by vaksenov on 16.01.2017.
@@ -25,22 +30,74 @@ public class FCArray {
 
     public static abstract class FCRequest {
         int pos = -1;
+        // the slot is reused when the owner thread dies
+        WeakReference<Thread> owner;
+        // set by the owner before it parks, is woken up by the combiner and by the leader handoff
+        volatile Thread waiter;
+        int spins;
+        // the setting of the array the request is registered in
+        boolean parks = true;
 
         public abstract boolean holdsRequest();
+
+        // a step of a wait loop, returns true if the owner should recheck its condition and park
+        public boolean prepareToPark() {
+            if (!parks || spins < SPINS) {
+                spins++;
+                BlackHole.consumeCPU(300);
+                return false;
+            }
+            waiter = Thread.currentThread();
+            return true;
+        }
+
+        public void park() {
+            // the timeout only bounds the cost of a missed wakeup
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+
+        public void wake() {
+            Thread w = waiter;
+            if (w != null) {
+                LockSupport.unpark(w);
+            }
+        }
+
+        // is called by the owner before a new request
+        public void resetWait() {
+            spins = 0;
+            waiter = null;
+        }
     }
 
+    static final int SPINS = 64;
+    static final long PARK_NANOS = 1_000_000;
+
     static final AtomicIntegerFieldUpdater<FCArray> lockUpdater =
             AtomicIntegerFieldUpdater.newUpdater(FCArray.class, "lock");
     volatile int lock;
 
-    static final AtomicIntegerFieldUpdater<FCArray> lengthUpdater =
-            AtomicIntegerFieldUpdater.newUpdater(FCArray.class, "length");
     volatile int length;
 
-    private final FCRequest[] requests;
+    // grows on registration, only the first length slots are scanned by the combiner
+    private volatile FCRequest[] requests;
+    // free slots below length, guarded by the registration lock
+    private final BitSet freeSlots = new BitSet();
+    private final Object registrationLock = new Object();
+    // buffer for the loaded requests, is used only by the combiner
+    private FCRequest[] loaded;
+
+    // waiters spin for SPINS steps and park afterwards, only spin if false
+    private final boolean parkWaiters;
 
     public FCArray(int threads) {
-        requests = new FCRequest[threads];
+        this(threads, true);
+    }
+
+    public FCArray(int threads, boolean parkWaiters) {
+        this.parkWaiters = parkWaiters;
+        requests = new FCRequest[Math.max(threads, 1)];
+        loaded = new FCRequest[requests.length + 1];
         length = 0;
     }
 
@@ -62,27 +119,85 @@ public class FCArray {
         }*/
 
         if (request.pos == -1) {
-            request.pos = lengthUpdater.getAndIncrement(this);
-            requests[request.pos] = request;
+            register(request);
+        }
+    }
+
+    private void register(FCRequest request) {
+        synchronized (registrationLock) {
+            releaseDeadSlots();
+            int pos = freeSlots.nextSetBit(0);
+            if (pos == -1) {
+                pos = length;
+                if (pos == requests.length) {
+                    requests = Arrays.copyOf(requests, 2 * pos);
+                }
+            } else {
+                freeSlots.clear(pos);
+            }
+            request.owner = new WeakReference<>(Thread.currentThread());
+            request.parks = parkWaiters;
+            request.pos = pos;
+            requests[pos] = request;
             unsafe.storeFence();
+            // publishes the slot, even if the length does not change
+            length = Math.max(length, pos + 1);
         }
     }
 
-    private static final int MAX_THREADS = 144;
-    private static final FCRequest[] tlReq = new FCRequest[MAX_THREADS + 1];
+    // under the registration lock
+    private void releaseDeadSlots() {
+        FCRequest[] r = requests;
+        int end = length;
+        for (int i = 0; i < end; i++) {
+            FCRequest request = r[i];
+            if (request == null || request.holdsRequest()) {
+                continue;
+            }
+            Thread owner = request.owner.get();
+            if (owner == null || !owner.isAlive()) {
+                r[i] = null;
+                request.pos = -1;
+                freeSlots.set(i);
+            }
+        }
+        // shrink, so that the combiner scans only the slots of live threads
+        while (end > 0 && r[end - 1] == null) {
+            end--;
+            freeSlots.clear(end);
+        }
+        length = end;
+    }
 
     public FCRequest[] loadRequests() {
         int end = length;
-        FCRequest[] r = tlReq;
+        FCRequest[] r = requests;
+        if (loaded.length < end + 1) {
+            loaded = new FCRequest[r.length + 1];
+        }
+        FCRequest[] result = loaded;
         int j = 0;
         for (int i = 0; i < end; i++) {
-            FCRequest request = requests[i];
+            FCRequest request = r[i];
             if (request != null && request.holdsRequest()) {
-                r[j++] = request;
+                result[j++] = request;
+            }
+        }
+        result[j] = null;
+        return result;
+    }
+
+    // wakes up a parked owner of a pending request after the leader leaves, so that it takes the lock
+    public void wakeOne() {
+        FCRequest[] r = requests;
+        int end = Math.min(length, r.length);
+        for (int i = 0; i < end; i++) {
+            FCRequest request = r[i];
+            if (request != null && request.holdsRequest() && request.waiter != null) {
+                request.wake();
+                return;
             }
         }
-        r[j] = null;
-        return r;
     }
 
     public void cleanup() {
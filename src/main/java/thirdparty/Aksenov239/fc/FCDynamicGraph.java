@@ -1,10 +1,11 @@
 package thirdparty.Aksenov239.fc;
 
-import benchmarks.util.BenchmarkThread;
 import connectivity.sequential.general.DynamicConnectivity;
 import connectivity.sequential.general.SequentialDynamicConnectivity;
 import thirdparty.Aksenov239.BlackHole;
 
+import java.util.Arrays;
+
 /**
  * User: Aksenov Vitaly
  * Date: 14.07.2017
@@ -18,6 +19,10 @@ public class FCDynamicGraph implements DynamicConnectivity {
     int TRIES;
 
     public FCDynamicGraph(int n, int threads) {
+        this(n, threads, true);
+    }
+
+    public FCDynamicGraph(int n, int threads, boolean parkWaiters) {
         T = threads;
         TRIES = T;
         N = n;
@@ -25,10 +30,8 @@ public class FCDynamicGraph implements DynamicConnectivity {
         sdg = new SequentialDynamicConnectivity(n);
 
         readRequests = new Request[T];
-        allocatedRequests = new Request[threads];
-        for (int i = 0; i < threads; i++)
-            allocatedRequests[i] = new Request();
-        fc = new FCArray(T);
+        updateRequests = new Request[T];
+        fc = new FCArray(T, parkWaiters);
         allocatedRequest = new ThreadLocal<>();
     }
 
@@ -46,25 +49,20 @@ public class FCDynamicGraph implements DynamicConnectivity {
     }
 
     public FCArray fc;
-    final private Request[] readRequests;
-    final private Request[] allocatedRequests;
+    private Request[] readRequests;
+    private Request[] updateRequests;
+    private final CancellingUpdateBuffer batch = new CancellingUpdateBuffer();
 
     private ThreadLocal<Request> allocatedRequest;
 
+    // threads register lazily and their slots in fc are reused after they die
     private Request getLocalRequest() {
-        Thread currentThread = Thread.currentThread();
-        if (currentThread instanceof BenchmarkThread) {
-            int threadId = ((BenchmarkThread) currentThread).getThreadId();
-            return allocatedRequests[threadId];
-        } else {
-            // for testing only
-            Request request = allocatedRequest.get();
-            if (request == null) {
-                request = new Request();
-                allocatedRequest.set(request);
-            }
-            return request;
+        Request request = allocatedRequest.get();
+        if (request == null) {
+            request = new Request();
+            allocatedRequest.set(request);
         }
+        return request;
     }
 
     private static final int PUSHED = 0;
@@ -96,6 +94,7 @@ public class FCDynamicGraph implements DynamicConnectivity {
             this.v = v;
             this.type = type;
             status = PUSHED;
+            resetWait();
         }
 
         // For result
@@ -140,31 +139,42 @@ public class FCDynamicGraph implements DynamicConnectivity {
 
                         loadedRequests = requests;
                         ((Request) requests[0]).leader = true;
+                        requests[0].wake();
 //                        System.err.println("Give  to " + requests[0]);
                         return;
                     }
                     loadedRequests = null;
 
                     int readLength = 0;
+                    int updateLength = 0;
                     for (int i = 0; i < requests.length; i++) {
                         Request r = (Request) requests[i];
                         if (r == null) {
                             break;
                         }
                         if (r.type == CONNECTED) {
+                            if (readLength == readRequests.length) {
+                                readRequests = Arrays.copyOf(readRequests, 2 * readLength);
+                            }
                             readRequests[readLength++] = r;
                         } else {
-                            if (r.type == ADD) { // the type could be add or remove
-                                addEdge(r);
-                            } else {
-                                removeEdge(r);
+                            if (updateLength == updateRequests.length) {
+                                updateRequests = Arrays.copyOf(updateRequests, 2 * updateLength);
                             }
-                            r.status = FINISHED;
+                            updateRequests[updateLength++] = r;
+                            batch.add(r.type == ADD, r.u, r.v); // the type could be add or remove
                         }
                     }
 
+                    batch.apply(sdg);
+                    for (int i = 0; i < updateLength; i++) {
+                        updateRequests[i].status = FINISHED;
+                        updateRequests[i].wake();
+                    }
+
                     for (int i = 0; i < readLength; i++) {
                         readRequests[i].status = PARALLEL;
+                        readRequests[i].wake();
                     }
 
                     if (request.type == CONNECTED) {
@@ -186,10 +196,13 @@ public class FCDynamicGraph implements DynamicConnectivity {
                 leaderExists = false;
                 request.leader = false;
                 fc.unlock();
+                fc.wakeOne();
             } else {
                 while ((currentStatus = request.status) == PUSHED &&
                         !request.leader && leaderExists) {
-                    sleep();
+                    if (request.prepareToPark() && request.status == PUSHED && !request.leader && leaderExists) {
+                        request.park();
+                    }
                 }
                 if (currentStatus == PUSHED) { // I'm the leader or no leader at all
                     continue;
@@ -205,7 +218,9 @@ public class FCDynamicGraph implements DynamicConnectivity {
                 }
 
                 while (request.status != FINISHED) { // Wait for the combiner to finish
-                    sleep();
+                    if (request.prepareToPark() && request.status != FINISHED) {
+                        request.park();
+                    }
                 }
                 return;
             }
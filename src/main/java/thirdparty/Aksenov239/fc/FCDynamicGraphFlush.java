@@ -6,6 +6,7 @@ import sun.misc.Unsafe;
 import thirdparty.Aksenov239.BlackHole;
 
 import java.lang.reflect.Constructor;
+import java.util.Arrays;
 
 /**
  * User: Aksenov Vitaly
@@ -19,14 +20,22 @@ public class FCDynamicGraphFlush implements DynamicConnectivity {
     int T;
     int TRIES;
 
+    boolean parkWaiters;
+
     public FCDynamicGraphFlush(int n, int threads) {
+        this(n, threads, true);
+    }
+
+    public FCDynamicGraphFlush(int n, int threads, boolean parkWaiters) {
         T = threads;
         TRIES = T;
         N = n;
+        this.parkWaiters = parkWaiters;
 
         sdg = new SequentialDynamicConnectivity(n);
 
         readRequests = new Request[T];
+        updateRequests = new Request[T];
         reinitialize();
     }
 
@@ -45,10 +54,12 @@ public class FCDynamicGraphFlush implements DynamicConnectivity {
     }
 
     public FCArray fc;
-    private final Request[] readRequests;
+    private Request[] readRequests;
+    private Request[] updateRequests;
+    private final CancellingUpdateBuffer batch = new CancellingUpdateBuffer();
 
     public void reinitialize() {
-        fc = new FCArray(T);
+        fc = new FCArray(T, parkWaiters);
         allocatedRequests = new ThreadLocal<>();
     }
 
@@ -75,9 +86,10 @@ public class FCDynamicGraphFlush implements DynamicConnectivity {
         int type;
         int u, v;
 
-        int status;
+        // volatile, since the combiner wakes the waiters before its fence
+        volatile int status;
 
-        boolean leader;
+        volatile boolean leader;
 
         public Request() {
             status = PUSHED;
@@ -92,6 +104,7 @@ public class FCDynamicGraphFlush implements DynamicConnectivity {
             this.u = u;
             this.v = v;
             status = PUSHED;
+            resetWait();
             unsafe.storeFence();
         }
 
@@ -140,6 +153,7 @@ public class FCDynamicGraphFlush implements DynamicConnectivity {
                         loadedRequests = requests;
 
                         ((Request) requests[0]).leader = true;
+                        requests[0].wake();
 
                         unsafe.storeFence();
                         return;
@@ -147,27 +161,37 @@ public class FCDynamicGraphFlush implements DynamicConnectivity {
                     loadedRequests = null;
 
                     int readLength = 0;
+                    int updateLength = 0;
                     for (int i = 0; i < requests.length; i++) {
                         Request r = (Request) requests[i];
                         if (r == null) {
                             break;
                         }
                         if (r.type == CONNECTED) {
+                            if (readLength == readRequests.length) {
+                                readRequests = Arrays.copyOf(readRequests, 2 * readLength);
+                            }
                             readRequests[readLength++] = r;
                         } else {
-                            if (r.type == ADD) { // the type could be add or remove
-                                addEdge(r);
-                            } else {
-                                removeEdge(r);
+                            if (updateLength == updateRequests.length) {
+                                updateRequests = Arrays.copyOf(updateRequests, 2 * updateLength);
                             }
-                            r.status = FINISHED;
+                            updateRequests[updateLength++] = r;
+                            batch.add(r.type == ADD, r.u, r.v); // the type could be add or remove
                         }
                     }
+
+                    batch.apply(sdg);
+                    for (int i = 0; i < updateLength; i++) {
+                        updateRequests[i].status = FINISHED;
+                        updateRequests[i].wake();
+                    }
                     
                     unsafe.storeFence();
 
                     for (int i = 0; i < readLength; i++) {
                         readRequests[i].status = PARALLEL;
+                        readRequests[i].wake();
                     }
 
                     unsafe.storeFence();
@@ -191,11 +215,14 @@ public class FCDynamicGraphFlush implements DynamicConnectivity {
                 leaderExists = false;
                 request.leader = false;
                 fc.unlock();
+                fc.wakeOne();
             } else {
                 unsafe.loadFence();
                 while ((currentStatus = request.status) == PUSHED &&
                         !request.leader && leaderExists) {
-                    sleep();
+                    if (request.prepareToPark() && request.status == PUSHED && !request.leader && leaderExists) {
+                        request.park();
+                    }
                     unsafe.loadFence();
                 }
                 if (currentStatus == PUSHED) { // I'm the leader or no leader at all
@@ -213,7 +240,9 @@ public class FCDynamicGraphFlush implements DynamicConnectivity {
 
                 unsafe.loadFence();
                 while (request.status != FINISHED) { // Wait for the combiner to finish
-                    sleep();
+                    if (request.prepareToPark() && request.status != FINISHED) {
+                        request.park();
+                    }
                     unsafe.loadFence();
                 }
                 return;
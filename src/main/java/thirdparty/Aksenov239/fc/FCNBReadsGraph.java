@@ -1,9 +1,8 @@
 package thirdparty.Aksenov239.fc;
 
-import benchmarks.util.BenchmarkThread;
+import connectivity.concurrent.RetryHistogram;
 import connectivity.sequential.general.DynamicConnectivity;
 import connectivity.sequential.general.SequentialDynamicConnectivity;
-import thirdparty.Aksenov239.BlackHole;
 
 /**
  * User: Aksenov Vitaly
@@ -18,16 +17,17 @@ public class FCNBReadsGraph implements DynamicConnectivity {
     int TRIES;
 
     public FCNBReadsGraph(int n, int threads) {
+        this(n, threads, true);
+    }
+
+    public FCNBReadsGraph(int n, int threads, boolean parkWaiters) {
         T = threads;
         TRIES = T;
         N = n;
 
         sdg = new NBReadsDynamicConnectivity(n);
 
-        allocatedRequests = new Request[threads];
-        for (int i = 0; i < threads; i++)
-            allocatedRequests[i] = new Request();
-        fc = new FCArray(T);
+        fc = new FCArray(T, parkWaiters);
         allocatedRequest = new ThreadLocal<>();
     }
 
@@ -40,24 +40,17 @@ public class FCNBReadsGraph implements DynamicConnectivity {
     }
 
     public FCArray fc;
-    final private Request[] allocatedRequests;
 
     private final ThreadLocal<Request> allocatedRequest;
 
+    // threads register lazily and their slots in fc are reused after they die
     private Request getLocalRequest() {
-        Thread currentThread = Thread.currentThread();
-        if (currentThread instanceof BenchmarkThread) {
-            int threadId = ((BenchmarkThread) currentThread).getThreadId();
-            return allocatedRequests[threadId];
-        } else {
-            // for testing only
-            Request request = allocatedRequest.get();
-            if (request == null) {
-                request = new Request();
-                allocatedRequest.set(request);
-            }
-            return request;
+        Request request = allocatedRequest.get();
+        if (request == null) {
+            request = new Request();
+            allocatedRequest.set(request);
         }
+        return request;
     }
 
     private static final int PUSHED = 0;
@@ -89,16 +82,13 @@ public class FCNBReadsGraph implements DynamicConnectivity {
             this.v = v;
             this.type = type;
             status = PUSHED;
+            resetWait();
         }
 
         // For result
         boolean result;
     }
 
-    public void sleep() {
-        BlackHole.consumeCPU(300);
-    }
-
     public volatile boolean leaderExists;
     public volatile FCArray.FCRequest[] loadedRequests;
 
@@ -133,6 +123,7 @@ public class FCNBReadsGraph implements DynamicConnectivity {
 
                         loadedRequests = requests;
                         ((Request) requests[0]).leader = true;
+                        requests[0].wake();
 //                        System.err.println("Give  to " + requests[0]);
                         return;
                     }
@@ -143,12 +134,15 @@ public class FCNBReadsGraph implements DynamicConnectivity {
                         if (r == null) {
                             break;
                         }
-                        if (r.type == ADD) { // the type could be add or remove
+                        if (r.type == ADD) {
                             addEdge(r);
-                        } else {
+                        } else if (r.type == REMOVE) {
                             removeEdge(r);
+                        } else { // a starving read
+                            r.result = sdg.connectedSimple(r.u, r.v);
                         }
                         r.status = FINISHED;
+                        r.wake();
 
                     }
 
@@ -158,25 +152,43 @@ public class FCNBReadsGraph implements DynamicConnectivity {
                 leaderExists = false;
                 request.leader = false;
                 fc.unlock();
+                fc.wakeOne();
             } else {
                 while ((currentStatus = request.status) == PUSHED &&
                         !request.leader && leaderExists) {
-                    sleep();
+                    if (request.prepareToPark() && request.status == PUSHED && !request.leader && leaderExists) {
+                        request.park();
+                    }
                 }
                 if (currentStatus == PUSHED) { // I'm the leader or no leader at all
                     continue;
                 }
 
                 while (request.status != FINISHED) { // Wait for the combiner to finish
-                    sleep();
+                    if (request.prepareToPark() && request.status != FINISHED) {
+                        request.park();
+                    }
                 }
                 return;
             }
         }
     }
 
+    // records the retries of the lock-free reads
+    public void setRetryHistogram(RetryHistogram retryHistogram) {
+        sdg.setRetryHistogram(retryHistogram);
+    }
+
     public boolean connected(int u, int v) {
-        return sdg.connected(u, v);
+        Boolean result = sdg.tryConnected(u, v);
+        if (result != null) {
+            return result;
+        }
+        // the lock-free read starves, let the combiner answer it
+        Request request = getLocalRequest();
+        request.set(CONNECTED, u, v);
+        handleRequest(request);
+        return request.result;
     }
 
     public void addEdge(int u, int v) {
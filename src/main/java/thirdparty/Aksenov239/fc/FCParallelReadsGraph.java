@@ -0,0 +1,236 @@
+package thirdparty.Aksenov239.fc;
+
+import connectivity.concurrent.RetryHistogram;
+import connectivity.sequential.general.DynamicConnectivity;
+import thirdparty.Aksenov239.BlackHole;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Flat combining for updates only, reads never enter the combining array.
+ * The combiner applies the batches to a structure with lock-free reads, so that
+ * the reads run in parallel with combining and are validated by the root versions.
+ */
+public class FCParallelReadsGraph implements DynamicConnectivity {
+    NBReadsDynamicConnectivity sdg;
+
+    int N;
+    int T;
+    int TRIES;
+
+    public FCParallelReadsGraph(int n, int threads) {
+        this(n, threads, true);
+    }
+
+    public FCParallelReadsGraph(int n, int threads, boolean parkWaiters) {
+        T = threads;
+        TRIES = T;
+        N = n;
+
+        sdg = new NBReadsDynamicConnectivity(n);
+
+        updateRequests = new Request[T];
+        fc = new FCArray(T, parkWaiters);
+        allocatedRequest = new ThreadLocal<>();
+    }
+
+    public FCArray fc;
+    private Request[] updateRequests;
+    private final CancellingUpdateBuffer batch = new CancellingUpdateBuffer();
+
+    // odd while the combiner applies a batch
+    private volatile int pass;
+    // readers that failed the lock-free attempts, the combiner does not start a new batch while they wait
+    private final AtomicInteger starvingReaders = new AtomicInteger();
+
+    private final ThreadLocal<Request> allocatedRequest;
+
+    // threads register lazily and their slots in fc are reused after they die
+    private Request getLocalRequest() {
+        Request request = allocatedRequest.get();
+        if (request == null) {
+            request = new Request();
+            allocatedRequest.set(request);
+        }
+        return request;
+    }
+
+    private static final int PUSHED = 0;
+    private static final int FINISHED = 2;
+
+    private static final int ADD = 1;
+    private static final int REMOVE = 2;
+
+    public static class Request extends FCArray.FCRequest {
+        volatile int type;
+        volatile int u;
+        volatile int v;
+
+        volatile int status;
+        volatile boolean leader;
+
+        public Request() {
+            status = PUSHED;
+        }
+
+        public boolean holdsRequest() {
+            return status != FINISHED;
+        }
+
+        public void set(int type, int u, int v) {
+            this.u = u;
+            this.v = v;
+            this.type = type;
+            status = PUSHED;
+            resetWait();
+        }
+    }
+
+    public void sleep() {
+        BlackHole.consumeCPU(300);
+    }
+
+    public volatile boolean leaderExists;
+    public volatile FCArray.FCRequest[] loadedRequests;
+
+    public void handleRequest(Request request) {
+        fc.addRequest(request);
+        while (true) {
+            boolean isLeader = request.leader;
+            int currentStatus = request.status;
+
+            if (!(isLeader || currentStatus != FINISHED)) { // request.leader || request.holdsRequest()
+                break;
+            }
+
+            if (!leaderExists) {
+                if (fc.tryLock()) {
+                    leaderExists = true;
+                    isLeader = request.leader = true;
+                }
+            }
+
+            if (isLeader && currentStatus == PUSHED) {
+                for (int t = 0; t < TRIES; t++) {
+                    FCArray.FCRequest[] requests = loadedRequests == null ? fc.loadRequests() : loadedRequests;
+
+                    if (requests[0] == null) {
+                        fc.cleanup();
+                        break;
+                    }
+
+                    if (request.status == FINISHED) {
+                        request.leader = false;
+
+                        loadedRequests = requests;
+                        ((Request) requests[0]).leader = true;
+                        requests[0].wake();
+                        return;
+                    }
+                    loadedRequests = null;
+
+                    int updateLength = 0;
+                    for (int i = 0; i < requests.length; i++) {
+                        Request r = (Request) requests[i];
+                        if (r == null) {
+                            break;
+                        }
+                        if (updateLength == updateRequests.length) {
+                            updateRequests = Arrays.copyOf(updateRequests, 2 * updateLength);
+                        }
+                        updateRequests[updateLength++] = r;
+                        batch.add(r.type == ADD, r.u, r.v); // the type could be add or remove
+                    }
+
+                    startPass();
+                    batch.apply(sdg);
+                    pass++;
+                    for (int i = 0; i < updateLength; i++) {
+                        updateRequests[i].status = FINISHED;
+                        updateRequests[i].wake();
+                    }
+
+                    fc.cleanup();
+                }
+
+                leaderExists = false;
+                request.leader = false;
+                fc.unlock();
+                fc.wakeOne();
+            } else {
+                while ((currentStatus = request.status) == PUSHED &&
+                        !request.leader && leaderExists) {
+                    if (request.prepareToPark() && request.status == PUSHED && !request.leader && leaderExists) {
+                        request.park();
+                    }
+                }
+                if (currentStatus == PUSHED) { // I'm the leader or no leader at all
+                    continue;
+                }
+
+                while (request.status != FINISHED) { // Wait for the combiner to finish
+                    if (request.prepareToPark() && request.status != FINISHED) {
+                        request.park();
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    // makes the pass odd when no reader waits: a reader registers before it checks the pass
+    // and the combiner checks the readers after it makes the pass odd, so they never overlap
+    private void startPass() {
+        while (true) {
+            pass++;
+            if (starvingReaders.get() == 0) {
+                return;
+            }
+            pass++;
+            while (starvingReaders.get() > 0) {
+                sleep();
+            }
+        }
+    }
+
+    // records the retries of the lock-free reads
+    public void setRetryHistogram(RetryHistogram retryHistogram) {
+        sdg.setRetryHistogram(retryHistogram);
+    }
+
+    public boolean connected(int u, int v) {
+        Boolean result = sdg.tryConnected(u, v);
+        if (result != null) {
+            return result;
+        }
+        // the lock-free read starves, read between two batches instead
+        starvingReaders.incrementAndGet();
+        try {
+            while (true) {
+                int currentPass = pass;
+                if ((currentPass & 1) == 0) {
+                    boolean connected = sdg.connectedSimple(u, v);
+                    if (pass == currentPass) {
+                        return connected;
+                    }
+                }
+                sleep();
+            }
+        } finally {
+            starvingReaders.decrementAndGet();
+        }
+    }
+
+    public void addEdge(int u, int v) {
+        Request request = getLocalRequest();
+        request.set(ADD, u, v);
+        handleRequest(request);
+    }
+
+    public void removeEdge(int u, int v) {
+        Request request = getLocalRequest();
+        request.set(REMOVE, u, v);
+        handleRequest(request);
+    }
+}
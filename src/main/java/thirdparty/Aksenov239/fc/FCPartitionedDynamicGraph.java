@@ -0,0 +1,234 @@
+package thirdparty.Aksenov239.fc;
+
+import connectivity.concurrent.general.sharded.ShardPartitioning;
+import connectivity.concurrent.general.sharded.ShardedDynamicConnectivity;
+import connectivity.sequential.general.DynamicConnectivity;
+
+import java.util.Arrays;
+
+/**
+ * Flat combining with a combining array per partition of the vertices. Each partition keeps a sequential core
+ * for the edges inside it, a shard of {@link ShardedDynamicConnectivity}, and its combiner applies the whole pass
+ * to the core as one batch under the lock of the shard. The edges between partitions go to the top level
+ * of the sharded instance directly, as well as the reads.
+ */
+public class FCPartitionedDynamicGraph implements DynamicConnectivity {
+    ShardedDynamicConnectivity graph;
+
+    int N;
+    int T;
+    int TRIES;
+
+    private final Partition[] partitions;
+
+    public FCPartitionedDynamicGraph(int n, int threads) {
+        this(n, threads, DEFAULT_PARTITIONS);
+    }
+
+    public FCPartitionedDynamicGraph(int n, int threads, int partitionCount) {
+        this(n, threads, partitionCount, true);
+    }
+
+    public FCPartitionedDynamicGraph(int n, int threads, int partitionCount, boolean parkWaiters) {
+        T = threads;
+        TRIES = T;
+        N = n;
+
+        graph = new ShardedDynamicConnectivity(n, partitionCount, ShardPartitioning.HASH);
+
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(graph.getShards()[i], T, parkWaiters);
+        }
+        allocatedRequests = new ThreadLocal<>();
+    }
+
+    public static final int DEFAULT_PARTITIONS = 8;
+
+    private static class Partition {
+        final ShardedDynamicConnectivity.Shard shard;
+        final FCArray fc;
+        final CancellingUpdateBuffer batch = new CancellingUpdateBuffer();
+        Request[] updateRequests;
+
+        volatile boolean leaderExists;
+        volatile FCArray.FCRequest[] loadedRequests;
+
+        Partition(ShardedDynamicConnectivity.Shard shard, int threads, boolean parkWaiters) {
+            this.shard = shard;
+            fc = new FCArray(threads, parkWaiters);
+            updateRequests = new Request[threads];
+        }
+
+        // the readers validate their optimistic reads by the shard lock
+        void apply() {
+            long stamp = shard.getLock().writeLock();
+            try {
+                batch.apply(shard);
+            } finally {
+                shard.getLock().unlockWrite(stamp);
+            }
+        }
+    }
+
+    private final ThreadLocal<Request[]> allocatedRequests;
+
+    // a request is registered in one array only, so a thread has a request per partition
+    private Request getLocalRequest(int partition) {
+        Request[] requests = allocatedRequests.get();
+        if (requests == null) {
+            requests = new Request[partitions.length];
+            allocatedRequests.set(requests);
+        }
+        Request request = requests[partition];
+        if (request == null) {
+            request = new Request();
+            requests[partition] = request;
+        }
+        return request;
+    }
+
+    private static final int PUSHED = 0;
+    private static final int FINISHED = 2;
+
+    private static final int ADD = 1;
+    private static final int REMOVE = 2;
+
+    public static class Request extends FCArray.FCRequest {
+        volatile int type;
+        // the vertices are local to the partition
+        volatile int u;
+        volatile int v;
+
+        volatile int status;
+        volatile boolean leader;
+
+        public Request() {
+            status = PUSHED;
+        }
+
+        public boolean holdsRequest() {
+            return status != FINISHED;
+        }
+
+        public void set(int type, int u, int v) {
+            this.u = u;
+            this.v = v;
+            this.type = type;
+            status = PUSHED;
+            resetWait();
+        }
+    }
+
+    private void handleRequest(Partition partition, Request request) {
+        FCArray fc = partition.fc;
+        fc.addRequest(request);
+        while (true) {
+            boolean isLeader = request.leader;
+            int currentStatus = request.status;
+
+            if (!(isLeader || currentStatus != FINISHED)) { // request.leader || request.holdsRequest()
+                break;
+            }
+
+            if (!partition.leaderExists) {
+                if (fc.tryLock()) {
+                    partition.leaderExists = true;
+                    isLeader = request.leader = true;
+                }
+            }
+
+            if (isLeader && currentStatus == PUSHED) {
+                for (int t = 0; t < TRIES; t++) {
+                    FCArray.FCRequest[] requests = partition.loadedRequests == null ? fc.loadRequests() : partition.loadedRequests;
+
+                    if (requests[0] == null) {
+                        fc.cleanup();
+                        break;
+                    }
+
+                    if (request.status == FINISHED) {
+                        request.leader = false;
+
+                        partition.loadedRequests = requests;
+                        ((Request) requests[0]).leader = true;
+                        requests[0].wake();
+                        return;
+                    }
+                    partition.loadedRequests = null;
+
+                    int updateLength = 0;
+                    for (int i = 0; i < requests.length; i++) {
+                        Request r = (Request) requests[i];
+                        if (r == null) {
+                            break;
+                        }
+                        if (updateLength == partition.updateRequests.length) {
+                            partition.updateRequests = Arrays.copyOf(partition.updateRequests, 2 * updateLength);
+                        }
+                        partition.updateRequests[updateLength++] = r;
+                        partition.batch.add(r.type == ADD, r.u, r.v); // the type could be add or remove
+                    }
+
+                    partition.apply();
+                    for (int i = 0; i < updateLength; i++) {
+                        partition.updateRequests[i].status = FINISHED;
+                        partition.updateRequests[i].wake();
+                    }
+
+                    fc.cleanup();
+                }
+
+                partition.leaderExists = false;
+                request.leader = false;
+                fc.unlock();
+                fc.wakeOne();
+            } else {
+                while ((currentStatus = request.status) == PUSHED &&
+                        !request.leader && partition.leaderExists) {
+                    if (request.prepareToPark() && request.status == PUSHED && !request.leader && partition.leaderExists) {
+                        request.park();
+                    }
+                }
+                if (currentStatus == PUSHED) { // I'm the leader or no leader at all
+                    continue;
+                }
+
+                while (request.status != FINISHED) { // Wait for the combiner to finish
+                    if (request.prepareToPark() && request.status != FINISHED) {
+                        request.park();
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    public boolean connected(int u, int v) {
+        return graph.connected(u, v);
+    }
+
+    public void addEdge(int u, int v) {
+        update(ADD, u, v);
+    }
+
+    public void removeEdge(int u, int v) {
+        update(REMOVE, u, v);
+    }
+
+    private void update(int type, int u, int v) {
+        int partition = graph.shard(u);
+        if (partition != graph.shard(v)) {
+            // the edges between partitions are kept by the top level only
+            if (type == ADD) {
+                graph.addEdge(u, v);
+            } else {
+                graph.removeEdge(u, v);
+            }
+            return;
+        }
+        Request request = getLocalRequest(partition);
+        request.set(type, graph.local(u), graph.local(v));
+        handleRequest(partitions[partition], request);
+    }
+}
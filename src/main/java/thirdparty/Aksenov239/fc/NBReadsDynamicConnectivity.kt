@@ -1,10 +1,11 @@
 package thirdparty.Aksenov239.fc
 
 import connectivity.*
+import connectivity.concurrent.RetryHistogram
 import connectivity.concurrent.tree.*
 import connectivity.sequential.general.*
 
-class NBReadsDynamicConnectivity(private val size: Int) : DynamicConnectivity {
+class NBReadsDynamicConnectivity(private val size: Int) : BatchedDynamicConnectivity {
     private val levels: Array<ConcurrentEulerTourTree>
     private val ranks = SequentialEdgeMap<Int>()
 
@@ -18,6 +19,14 @@ class NBReadsDynamicConnectivity(private val size: Int) : DynamicConnectivity {
         levels = Array(levelNumber) { ConcurrentEulerTourTree(size) }
     }
 
+    // retry bound for lock-free connectivity reads
+    var connectedTries = CONNECTED_TRIES
+    var retryHistogram: RetryHistogram?
+        get() = levels[0].retryHistogram
+        set(value) {
+            levels[0].retryHistogram = value
+        }
+
     override fun addEdge(u: Int, v: Int) {
         val edge = makeEdge(u, v)
         if (ranks[edge] != null) return
@@ -86,8 +95,8 @@ class NBReadsDynamicConnectivity(private val size: Int) : DynamicConnectivity {
                 break
             } else {
                 // linearization point, do an actual split on this level
-                uRoot.version.inc()
-                vRoot.version.inc()
+                uRoot.version++
+                vRoot.version++
                 uRoot.parent = null
                 vRoot.parent = null
             }
@@ -96,6 +105,20 @@ class NBReadsDynamicConnectivity(private val size: Int) : DynamicConnectivity {
 
     override fun connected(u: Int, v: Int) = levels[0].connected(u, v)
 
+    // returns null if the lock-free read gave up
+    fun tryConnected(u: Int, v: Int): Boolean? = levels[0].tryConnected(u, v, connectedTries)
+
+    // for the combiner only
+    fun connectedSimple(u: Int, v: Int) = levels[0].connectedSimple(u, v, null)
+
+    override fun containsEdge(u: Int, v: Int) = ranks[makeEdge(u, v)] != null
+
+    override fun isTreeEdge(u: Int, v: Int): Boolean {
+        val edge = makeEdge(u, v)
+        val rank = ranks[edge] ?: return false
+        return !levels[rank].node(u).nonTreeEdges!!.contains(edge)
+    }
+
     private fun sample(node: ConcurrentETTNode, rank: Int, tries: Long, additionalRoot: ConcurrentETTNode): Long {
         if (!node.hasNonTreeEdges) return -tries
         var tries = tries
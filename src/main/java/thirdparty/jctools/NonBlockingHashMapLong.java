@@ -1038,6 +1038,14 @@ public class NonBlockingHashMapLong<TypeV> {
      *  @see #values()  */
     public Enumeration<TypeV> elements() { return new SnapshotV(); }
 
+    /** Returns a copy of the key slots of the table, so that the keys can be
+     *  scanned in parallel by ranges of slots.  Every key present at the call
+     *  is in the copy, keys added later may be missing, and removed keys may
+     *  be present, so the values should be read with {@link #get}.  Empty
+     *  slots and the key {@code 0} are {@code 0}.
+     *  @return a copy of the key slots */
+    public long[] keySlots() { return new SnapshotV()._sschm._keys.clone(); }
+
     // --- values --------------------------------------------------------------
     /** Returns a {@link Collection} view of the values contained in this map.
      *  The collection is backed by the map, so changes to the map are reflected
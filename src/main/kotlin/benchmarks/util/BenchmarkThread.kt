@@ -1,3 +1,12 @@
 package benchmarks.util
 
-class BenchmarkThread(val threadId: Int, target: () -> Unit) : Thread(target)
\ No newline at end of file
+const val NO_FOREST_CHANGE = 0
+const val LINK = 1
+const val CUT = 2
+const val REPLACE = 3
+
+class BenchmarkThread(val threadId: Int, target: () -> Unit) : Thread(target) {
+    // the spanning forest change of the current operation, see [OperationLatencies]
+    @JvmField
+    var forestChange = NO_FOREST_CHANGE
+}
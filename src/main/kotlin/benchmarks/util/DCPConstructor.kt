@@ -1,7 +1,9 @@
 package benchmarks.util
 
+import connectivity.concurrent.RetryHistogram
 import connectivity.concurrent.general.*
 import connectivity.concurrent.general.major.MajorDynamicConnectivity
+import connectivity.concurrent.general.major.SpanningForestListener
 import connectivity.concurrent.general.major_coarse_grained.MajorCoarseGrainedDynamicConnectivity
 import connectivity.sequential.general.DynamicConnectivity
 import thirdparty.Aksenov239.fc.*
@@ -9,13 +11,16 @@ import java.util.concurrent.atomic.*
 
 enum class DCPConstructor {
     MajorDynamicConnectivity,
+    MajorDynamicConnectivityRootHints,
     FineGrainedLockingDCP,
     FineGrainedReadWriteLockingDynamicConnectivity,
     NBFCDynamicConnectivity,
+    FCParallelReadsDynamicConnectivity,
     NBReadsCoarseGrainedLockingDCP,
     NBReadsFineGrainedLockingDynamicConnectivity,
     MajorCoarseGrainedDynamicConnectivity,
     FCReadOptimizedDynamicConnectivity,
+    FCPartitionedDynamicConnectivity,
     CoarseGrainedLockingDCP,
     CoarseGrainedReadWriteLockingDCP
 }
@@ -25,15 +30,56 @@ fun DCPConstructor.constructor(): (Int, Int) -> DynamicConnectivity = when(this)
     DCPConstructor.NBReadsCoarseGrainedLockingDCP -> addTrivialParameter(::NBReadsCoarseGrainedLockingDynamicConnectivity)
     DCPConstructor.NBReadsFineGrainedLockingDynamicConnectivity -> addTrivialParameter(::NBReadsFineGrainedLockingDynamicConnectivity)
     DCPConstructor.MajorDynamicConnectivity -> addTrivialParameter(::MajorDynamicConnectivity)
+    DCPConstructor.MajorDynamicConnectivityRootHints -> addTrivialParameter { size -> MajorDynamicConnectivity(size, rootHints = true) }
     DCPConstructor.MajorCoarseGrainedDynamicConnectivity -> addTrivialParameter(::MajorCoarseGrainedDynamicConnectivity)
     DCPConstructor.FCReadOptimizedDynamicConnectivity -> ::FCDynamicGraph
+    DCPConstructor.FCPartitionedDynamicConnectivity -> ::FCPartitionedDynamicGraph
     DCPConstructor.NBFCDynamicConnectivity -> ::FCNBReadsGraph
+    DCPConstructor.FCParallelReadsDynamicConnectivity -> ::FCParallelReadsGraph
     DCPConstructor.CoarseGrainedLockingDCP -> addTrivialParameter(::CoarseGrainedLockingDynamicConnectivity)
     DCPConstructor.CoarseGrainedReadWriteLockingDCP -> addTrivialParameter(::CoarseGrainedReadWriteLockingDynamicConnectivity)
     DCPConstructor.FineGrainedLockingDCP -> addTrivialParameter(::FineGrainedLockingDynamicConnectivity)
     DCPConstructor.FineGrainedReadWriteLockingDynamicConnectivity -> addTrivialParameter(::FineGrainedReadWriteLockingDynamicConnectivity)
 }
 
+fun DCPConstructor.reportsForestChanges() = when(this) {
+    DCPConstructor.MajorDynamicConnectivity,
+    DCPConstructor.MajorDynamicConnectivityRootHints,
+    DCPConstructor.MajorCoarseGrainedDynamicConnectivity -> true
+    else -> false
+}
+
+// the listener is ignored by the implementations that do not report their spanning forest changes
+fun DCPConstructor.constructor(forestListener: SpanningForestListener): (Int, Int) -> DynamicConnectivity = when(this) {
+    DCPConstructor.MajorDynamicConnectivity -> addTrivialParameter { size -> MajorDynamicConnectivity(size, forestListener) }
+    DCPConstructor.MajorDynamicConnectivityRootHints -> addTrivialParameter { size -> MajorDynamicConnectivity(size, forestListener, rootHints = true) }
+    DCPConstructor.MajorCoarseGrainedDynamicConnectivity -> addTrivialParameter { size -> MajorCoarseGrainedDynamicConnectivity(size, forestListener = forestListener) }
+    else -> constructor()
+}
+
+// the flat combining waiters only spin without parking if false, the other implementations ignore it
+fun DCPConstructor.constructor(parkWaiters: Boolean): (Int, Int) -> DynamicConnectivity = when(this) {
+    DCPConstructor.FCReadOptimizedDynamicConnectivity -> { size, threads -> FCDynamicGraph(size, threads, parkWaiters) }
+    DCPConstructor.FCPartitionedDynamicConnectivity -> { size, threads ->
+        FCPartitionedDynamicGraph(size, threads, FCPartitionedDynamicGraph.DEFAULT_PARTITIONS, parkWaiters)
+    }
+    DCPConstructor.NBFCDynamicConnectivity -> { size, threads -> FCNBReadsGraph(size, threads, parkWaiters) }
+    DCPConstructor.FCParallelReadsDynamicConnectivity -> { size, threads -> FCParallelReadsGraph(size, threads, parkWaiters) }
+    else -> constructor()
+}
+
+// the implementations with bounded lock-free reads record their retries to histogram, returns false for the others
+fun DynamicConnectivity.attachRetryHistogram(histogram: RetryHistogram): Boolean {
+    when (this) {
+        is MajorDynamicConnectivity -> retryHistogram = histogram
+        is NBReadsCoarseGrainedLockingDynamicConnectivity -> retryHistogram = histogram
+        is FCNBReadsGraph -> setRetryHistogram(histogram)
+        is FCParallelReadsGraph -> setRetryHistogram(histogram)
+        else -> return false
+    }
+    return true
+}
+
 enum class LockElisionDCPConstructor {
     LockElisionCoarseGrainedLockingDCP(),
     LockElisionNBReadsCoarseGrainedLockingDCP(),
@@ -52,6 +98,7 @@ enum class DCPForModificationsConstructor {
     MajorDynamicConnectivity(),
     MajorCoarseGrainedDynamicConnectivity(),
     FCReadOptimizedDynamicConnectivity(),
+    FCPartitionedDynamicConnectivity(),
 }
 
 fun DCPForModificationsConstructor.constructor(): (Int, Int) -> DynamicConnectivity = when(this) {
@@ -60,6 +107,7 @@ fun DCPForModificationsConstructor.constructor(): (Int, Int) -> DynamicConnectiv
     DCPForModificationsConstructor.MajorDynamicConnectivity -> addTrivialParameter(::MajorDynamicConnectivity)
     DCPForModificationsConstructor.MajorCoarseGrainedDynamicConnectivity -> addTrivialParameter(::MajorCoarseGrainedDynamicConnectivity)
     DCPForModificationsConstructor.FCReadOptimizedDynamicConnectivity -> ::FCDynamicGraph
+    DCPForModificationsConstructor.FCPartitionedDynamicConnectivity -> ::FCPartitionedDynamicGraph
 }
 
 
@@ -74,4 +122,16 @@ fun LockElisionDCPForModificationsConstructor.constructor(): (Int) -> DynamicCon
 }
 
 
+// software replacement of lock elision, does not need -XX:+UseRTMLocking
+enum class OptimisticDCPConstructor {
+    OptimisticCoarseGrainedLockingDCP(),
+    OptimisticMajorCoarseGrainedDynamicConnectivity(),
+}
+
+fun OptimisticDCPConstructor.constructor(): (Int) -> DynamicConnectivity = when(this) {
+    OptimisticDCPConstructor.OptimisticCoarseGrainedLockingDCP -> ::OptimisticCoarseGrainedLockingDynamicConnectivity
+    OptimisticDCPConstructor.OptimisticMajorCoarseGrainedDynamicConnectivity -> { size -> MajorCoarseGrainedDynamicConnectivity(size, optimistic = true) }
+}
+
+
 inline fun <T> addTrivialParameter(crossinline f: (Int) -> T): (Int, Int) -> T = { size, threads -> f(size) }
\ No newline at end of file
@@ -1,11 +1,28 @@
 package benchmarks.util
 
-import java.io.Serializable
+import java.nio.LongBuffer
 
 const val MAX_BITS_PER_NODE = 27
 const val NODE_MASK = (1L shl MAX_BITS_PER_NODE) - 1
 
-class Graph(val nodes: Int, val edges: LongArray) : Serializable
+/**
+ * The edges are either a wrapped array or a read-only view of a memory-mapped graph cache,
+ * which all processes mapping the cache share through the page cache.
+ */
+class Graph(val nodes: Int, val edgeBuffer: LongBuffer) {
+    constructor(nodes: Int, edges: LongArray) : this(nodes, LongBuffer.wrap(edges))
+
+    val edgeCount: Int get() = edgeBuffer.limit()
+
+    fun edge(i: Int): Long = edgeBuffer.get(i)
+
+    // copies the edges in [from, to)
+    fun edges(from: Int, to: Int): LongArray {
+        val result = LongArray(to - from)
+        edgeBuffer.duplicate().apply { position(from) }.get(result)
+        return result
+    }
+}
 
 inline fun Long.to(): Int {
     return (this and NODE_MASK).toInt()
@@ -15,4 +32,4 @@ inline fun Long.from(): Int {
     return ((this shr MAX_BITS_PER_NODE) and NODE_MASK).toInt()
 }
 
-fun bidirectionalEdge(from: Int, to: Int): Long = to + (from.toLong() shl MAX_BITS_PER_NODE)
\ No newline at end of file
+fun bidirectionalEdge(from: Int, to: Int): Long = to + (from.toLong() shl MAX_BITS_PER_NODE)
@@ -0,0 +1,135 @@
+package benchmarks.util
+
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.LongBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import kotlin.math.min
+
+// binary edge list: magic, version, nodes, edges, source key, checksum, then the edges as little-endian longs
+private const val CACHE_MAGIC = 0x44434743 // "DCGC"
+private const val CACHE_VERSION = 2
+private const val HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + 8
+// edges per mapped window, keeps windows below 2GB
+private const val WINDOW_EDGES = 1 shl 27
+
+fun graphCacheFile(name: String) = "$name.bin"
+
+/**
+ * Identifies the graph a cache was built from, so that a cache of the same name built with other parameters is not loaded.
+ */
+fun graphCacheKey(name: String, type: String, params: String): Long {
+    var hash = FNV_OFFSET
+    for (byte in "$name\n$type\n$params".toByteArray()) {
+        hash = hash xor byte.toLong()
+        hash *= FNV_PRIME
+    }
+    return hash
+}
+
+/**
+ * Writes [graph] built from the source identified by [key] to [filename] atomically,
+ * so that a partially written cache is never loaded.
+ */
+fun writeGraphCache(filename: String, graph: Graph, key: Long) {
+    val target = Paths.get(filename).toAbsolutePath()
+    val temporary = Files.createTempFile(target.parent, target.fileName.toString(), ".tmp")
+    try {
+        FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE).use { channel ->
+            val header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+            header.putInt(CACHE_MAGIC)
+            header.putInt(CACHE_VERSION)
+            header.putInt(graph.nodes)
+            header.putLong(graph.edgeCount.toLong())
+            header.putLong(key)
+            header.putLong(checksum(graph.edgeBuffer))
+            header.flip()
+            while (header.hasRemaining()) channel.write(header)
+
+            forEachWindow(graph.edgeCount) { from, count ->
+                val buffer = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + 8L * from, 8L * count)
+                val window = graph.edgeBuffer.duplicate().apply { position(from); limit(from + count) }
+                buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(window)
+            }
+            channel.force(true)
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } finally {
+        Files.deleteIfExists(temporary)
+    }
+}
+
+/**
+ * Reads the cache into a new graph, returns null if the file is missing, of another version or source [key], or corrupted.
+ */
+fun loadGraphCache(filename: String, key: Long): Graph? {
+    if (!File(filename).exists()) return null
+    FileChannel.open(Paths.get(filename), StandardOpenOption.READ).use { channel ->
+        val header = readHeader(channel, key) ?: return null
+        val edges = LongArray(header.edges)
+        forEachWindow(edges.size) { from, count ->
+            val buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + 8L * from, 8L * count)
+            buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(edges, from, count)
+        }
+        if (checksum(LongBuffer.wrap(edges)) != header.checksum) return null
+        return Graph(header.nodes, edges)
+    }
+}
+
+/**
+ * Maps the cache read-only without copying the edges, see [Graph.edgeBuffer].
+ * Returns null if the file is missing, invalid or of another source [key], the checksum is checked only if [verify] is set.
+ */
+fun mapGraphCache(filename: String, key: Long, verify: Boolean = false): Graph? {
+    if (!File(filename).exists()) return null
+    FileChannel.open(Paths.get(filename), StandardOpenOption.READ).use { channel ->
+        val header = readHeader(channel, key) ?: return null
+        // a view is limited by a single mapping, larger graphs are copied
+        if (header.edges > WINDOW_EDGES) return loadGraphCache(filename, key)
+        val edges = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE.toLong(), 8L * header.edges)
+            .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer()
+        if (verify && checksum(edges) != header.checksum) return null
+        return Graph(header.nodes, edges)
+    }
+}
+
+private class CacheHeader(val nodes: Int, val edges: Int, val checksum: Long)
+
+private fun readHeader(channel: FileChannel, key: Long): CacheHeader? {
+    if (channel.size() < HEADER_SIZE) return null
+    val header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE.toLong()).order(ByteOrder.LITTLE_ENDIAN)
+    if (header.int != CACHE_MAGIC || header.int != CACHE_VERSION) return null
+    val nodes = header.int
+    val edgeCount = header.long
+    if (header.long != key) return null
+    val checksum = header.long
+    if (edgeCount < 0 || edgeCount > Int.MAX_VALUE || channel.size() != HEADER_SIZE + 8 * edgeCount) return null
+    return CacheHeader(nodes, edgeCount.toInt(), checksum)
+}
+
+private inline fun forEachWindow(size: Int, action: (from: Int, count: Int) -> Unit) {
+    var from = 0
+    while (from < size) {
+        val count = min(WINDOW_EDGES, size - from)
+        action(from, count)
+        from += count
+    }
+}
+
+private const val FNV_OFFSET = -0x340d631b7bdddcdbL
+private const val FNV_PRIME = 0x100000001b3L
+
+// FNV-1a over the edges
+private fun checksum(edges: LongBuffer): Long {
+    var hash = FNV_OFFSET
+    for (i in 0 until edges.limit()) {
+        hash = hash xor edges.get(i)
+        hash *= FNV_PRIME
+    }
+    return hash
+}
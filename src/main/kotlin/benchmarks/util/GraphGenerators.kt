@@ -0,0 +1,126 @@
+package benchmarks.util
+
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import java.util.SplittableRandom
+import java.util.concurrent.Executors
+
+private val PARALLELISM = Runtime.getRuntime().availableProcessors()
+// edges (or grid rows for grids) generated by one task, the graph does not depend on the number of cores
+private const val GENERATOR_BLOCK = 1 shl 20
+
+/**
+ * R-MAT (Kronecker) graph with 2^[scale] vertices and [edgeFactor] * 2^[scale] generated edges,
+ * the parameters of Graph500 (and of kron_g500-logn21) are a = 0.57, b = c = 0.19.
+ * Self-loops are skipped, duplicates are left for [removeSameEdges].
+ * Vertex ids are randomly permuted, so that the high degree vertices are not the first ones.
+ */
+fun rmatGraph(scale: Int, edgeFactor: Int, a: Double = 0.57, b: Double = 0.19, c: Double = 0.19, seed: Long = 0): Graph {
+    val nodes = 1 shl scale
+    val edges = edgeFactor.toLong() * nodes
+    val permutation = randomPermutation(nodes, SplittableRandom(seed))
+    val result = generateInBlocks(edges, seed) { rnd, count, output ->
+        repeat(count) {
+            var from = 0
+            var to = 0
+            for (level in 0 until scale) {
+                val r = rnd.nextDouble()
+                from = from shl 1
+                to = to shl 1
+                when {
+                    r < a -> {}
+                    r < a + b -> to++
+                    r < a + b + c -> from++
+                    else -> { from++; to++ }
+                }
+            }
+            if (from != to)
+                output.add(bidirectionalEdge(permutation[from], permutation[to]))
+        }
+    }
+    return Graph(nodes, result)
+}
+
+/**
+ * Erdős–Rényi G(n, m) graph with [edges] uniformly random pairs of distinct vertices,
+ * duplicates are left for [removeSameEdges].
+ */
+fun erdosRenyiGraph(nodes: Int, edges: Long, seed: Long = 0): Graph {
+    val result = generateInBlocks(edges, seed) { rnd, count, output ->
+        repeat(count) {
+            val from = rnd.nextInt(nodes)
+            var to = rnd.nextInt(nodes - 1)
+            if (to >= from) to++
+            output.add(bidirectionalEdge(from, to))
+        }
+    }
+    return Graph(nodes, result)
+}
+
+/**
+ * Road-like graph: a [width] x [height] grid where each edge is kept with probability [keep].
+ * Vertices are numbered row by row, so that close vertices have close ids, as in road networks.
+ */
+fun gridGraph(width: Int, height: Int, keep: Double, seed: Long = 0): Graph {
+    val rowsPerBlock = maxOf(1, GENERATOR_BLOCK / width)
+    val result = generateInBlocks(height.toLong(), seed, rowsPerBlock) { rnd, count, output, first ->
+        for (row in first until first + count) {
+            for (column in 0 until width) {
+                val v = row * width + column
+                if (column + 1 < width && rnd.nextDouble() < keep)
+                    output.add(bidirectionalEdge(v, v + 1))
+                if (row + 1 < height && rnd.nextDouble() < keep)
+                    output.add(bidirectionalEdge(v, v + width))
+            }
+        }
+    }
+    return Graph(width * height, result)
+}
+
+private fun randomPermutation(size: Int, rnd: SplittableRandom): IntArray {
+    val permutation = IntArray(size) { it }
+    for (i in size - 1 downTo 1) {
+        val j = rnd.nextInt(i + 1)
+        val tmp = permutation[i]
+        permutation[i] = permutation[j]
+        permutation[j] = tmp
+    }
+    return permutation
+}
+
+private inline fun generateInBlocks(
+    total: Long,
+    seed: Long,
+    crossinline generate: (rnd: SplittableRandom, count: Int, output: LongArrayList) -> Unit
+): LongArray = generateInBlocks(total, seed, GENERATOR_BLOCK) { rnd, count, output, _ -> generate(rnd, count, output) }
+
+// splits [total] items into blocks of [blockSize], each block gets its own random generator
+private inline fun generateInBlocks(
+    total: Long,
+    seed: Long,
+    blockSize: Int,
+    crossinline generate: (rnd: SplittableRandom, count: Int, output: LongArrayList, first: Int) -> Unit
+): LongArray {
+    val blocks = ((total + blockSize - 1) / blockSize).toInt()
+    // split sequentially, so that the generators do not depend on the scheduling
+    val root = SplittableRandom(seed xor 0x5DEECE66DL)
+    val randoms = Array(blocks) { root.split() }
+    val pool = Executors.newFixedThreadPool(PARALLELISM)
+    try {
+        val parts = (0 until blocks).map { i ->
+            pool.submit<LongArrayList> {
+                val first = i.toLong() * blockSize
+                val count = minOf(blockSize.toLong(), total - first).toInt()
+                LongArrayList(count).also { generate(randoms[i], count, it, first.toInt()) }
+            }
+        }.map { it.get() }
+        val result = LongArray(parts.sumBy { it.size })
+        var pos = 0
+        for (part in parts) {
+            part.getElements(0, result, pos, part.size)
+            pos += part.size
+        }
+        return result
+    } finally {
+        pool.shutdown()
+    }
+}
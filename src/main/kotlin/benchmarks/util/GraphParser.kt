@@ -0,0 +1,264 @@
+package benchmarks.util
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream
+import java.io.BufferedInputStream
+import java.io.FileInputStream
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.zip.GZIPInputStream
+import kotlin.math.max
+import kotlin.random.Random
+
+enum class GraphFormat {
+    GR, // DIMACS: "p sp nodes edges" and "a from to weight", vertices from 1
+    TXT, // SNAP: "from to" pairs, vertex ids are renumbered in the order of appearance
+    GRAPH // METIS: "nodes edges" and a line of neighbours (from 1) for each vertex
+}
+
+enum class Compression {
+    NONE, GZIP, BZIP2
+}
+
+private val PARALLELISM = Runtime.getRuntime().availableProcessors()
+private const val BLOCK_SIZE = 1 shl 24
+private const val MAX_CHUNK_SIZE = 1 shl 30
+private const val NEWLINE = '\n'.toByte()
+
+/**
+ * Parses the graph on all cores, the result is the same as of [parseGrFile], [parseTxtFile] and [parseGraphFile].
+ * An uncompressed file is memory-mapped and split into [chunks] at line boundaries,
+ * a compressed file is decompressed by the calling thread into blocks of [blockSize] bytes,
+ * which are parsed while the next blocks are decompressed.
+ */
+fun parseGraphParallel(
+    filename: String,
+    format: GraphFormat,
+    compression: Compression,
+    chunks: Int = 4 * PARALLELISM,
+    blockSize: Int = BLOCK_SIZE
+): Graph {
+    val parsed = when (compression) {
+        Compression.NONE -> parseMapped(filename, format, chunks)
+        Compression.GZIP -> GZIPInputStream(FileInputStream(filename), 1 shl 16).use { parsePipelined(it, format, blockSize) }
+        Compression.BZIP2 -> BZip2CompressorInputStream(BufferedInputStream(FileInputStream(filename))).use { parsePipelined(it, format, blockSize) }
+    }
+    return merge(parsed, format)
+}
+
+// the result of parsing some consecutive lines
+private class ParsedChunk(val edges: LongArrayList, val lines: Int, val nodes: Int)
+
+private fun parseMapped(filename: String, format: GraphFormat, chunks: Int): List<ParsedChunk> =
+    FileChannel.open(Paths.get(filename), StandardOpenOption.READ).use { channel ->
+        val size = channel.size()
+        val count = max(chunks.toLong(), size / MAX_CHUNK_SIZE + 1).toInt()
+        val bounds = LongArray(count + 1)
+        bounds[count] = size
+        for (i in 1 until count)
+            bounds[i] = max(bounds[i - 1], nextLineStart(channel, size * i / count))
+
+        val pool = Executors.newFixedThreadPool(PARALLELISM)
+        try {
+            (0 until count).map { i ->
+                pool.submit<ParsedChunk> {
+                    val length = (bounds[i + 1] - bounds[i]).toInt()
+                    val buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], length.toLong())
+                    parseChunk(buffer, length, format, bounds[i] == 0L)
+                }
+            }.map { it.get() }
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+private fun nextLineStart(channel: FileChannel, position: Long): Long {
+    if (position == 0L) return 0
+    val buffer = ByteBuffer.allocate(1 shl 12)
+    var offset = position - 1
+    while (true) {
+        buffer.clear()
+        val read = channel.read(buffer, offset)
+        if (read <= 0) return channel.size()
+        for (i in 0 until read)
+            if (buffer.get(i) == NEWLINE) return offset + i + 1
+        offset += read
+    }
+}
+
+private fun parsePipelined(input: InputStream, format: GraphFormat, blockSize: Int): List<ParsedChunk> {
+    val pool = Executors.newFixedThreadPool(PARALLELISM)
+    try {
+        val results = ArrayList<Future<ParsedChunk>>()
+        var waited = 0
+        var block = ByteArray(blockSize)
+        var filled = 0
+        while (true) {
+            val read = input.read(block, filled, block.size - filled)
+            if (read > 0) {
+                filled += read
+                if (filled < block.size) continue
+            }
+            val eof = read < 0
+            var end = filled
+            if (!eof) {
+                while (end > 0 && block[end - 1] != NEWLINE) end--
+                // a line longer than a block
+                if (end == 0) {
+                    block = block.copyOf(2 * block.size)
+                    continue
+                }
+            }
+            val full = block
+            val first = results.isEmpty()
+            results += pool.submit<ParsedChunk> { parseChunk(ByteBuffer.wrap(full), end, format, first) }
+
+            // bound the number of blocks in memory
+            while (results.size - waited > 2 * PARALLELISM)
+                results[waited++].get()
+
+            if (eof) break
+            block = ByteArray(max(blockSize, filled - end))
+            System.arraycopy(full, end, block, 0, filled - end)
+            filled -= end
+        }
+        return results.map { it.get() }
+    } finally {
+        pool.shutdown()
+    }
+}
+
+// [buffer] starts at a line start, [length] bytes are parsed
+private fun parseChunk(buffer: ByteBuffer, length: Int, format: GraphFormat, withHeader: Boolean): ParsedChunk {
+    val edges = LongArrayList()
+    val cursor = Cursor(buffer)
+    var nodes = -1
+    var line = 0
+    var start = 0
+    while (start < length) {
+        var end = start
+        while (end < length && buffer.get(end) != NEWLINE) end++
+        cursor.reset(start, end)
+        when (format) {
+            GraphFormat.GR -> when {
+                cursor.startsWith("a ") -> {
+                    val from = cursor.nextInt() - 1
+                    val to = cursor.nextInt() - 1
+                    edges.add(bidirectionalEdge(from, to))
+                }
+                cursor.startsWith("p sp ") -> nodes = cursor.nextInt()
+            }
+            GraphFormat.TXT -> if (!cursor.startsWith("# ")) {
+                val from = cursor.nextInt()
+                val to = cursor.nextInt()
+                // raw ids, they are renumbered sequentially in merge
+                if (from >= 0 && to >= 0 && from != to)
+                    edges.add((from.toLong() shl 32) or to.toLong())
+            }
+            GraphFormat.GRAPH -> if (withHeader && line == 0) {
+                nodes = cursor.nextInt()
+            } else {
+                // the line number is local, merge shifts it
+                while (true) {
+                    val neighbour = cursor.nextInt()
+                    if (neighbour < 0) break
+                    edges.add(bidirectionalEdge(line, neighbour - 1))
+                }
+            }
+        }
+        line++
+        start = end + 1
+    }
+    return ParsedChunk(edges, line, nodes)
+}
+
+private class Cursor(private val buffer: ByteBuffer) {
+    private var position = 0
+    private var end = 0
+
+    fun reset(start: Int, end: Int) {
+        position = start
+        this.end = end
+    }
+
+    fun startsWith(prefix: String): Boolean {
+        if (end - position < prefix.length) return false
+        for (i in prefix.indices)
+            if (buffer.get(position + i) != prefix[i].toByte()) return false
+        return true
+    }
+
+    // the next non-negative number in the line or -1
+    fun nextInt(): Int {
+        while (position < end && !isDigit(buffer.get(position))) position++
+        if (position == end) return -1
+        var result = 0
+        while (position < end && isDigit(buffer.get(position)))
+            result = result * 10 + (buffer.get(position++) - '0'.toByte())
+        return result
+    }
+
+    private fun isDigit(b: Byte) = b >= '0'.toByte() && b <= '9'.toByte()
+}
+
+private fun merge(chunks: List<ParsedChunk>, format: GraphFormat): Graph {
+    val edges = LongArray(chunks.sumBy { it.edges.size })
+    var pos = 0
+    var nodes = -1
+    when (format) {
+        GraphFormat.GR -> chunks.forEach { chunk ->
+            if (chunk.nodes >= 0) nodes = chunk.nodes
+            chunk.edges.getElements(0, edges, pos, chunk.edges.size)
+            pos += chunk.edges.size
+        }
+        GraphFormat.GRAPH -> {
+            // the first line is the header, so vertex v is on line v + 1
+            var firstLine = 0L
+            chunks.forEach { chunk ->
+                if (chunk.nodes >= 0) nodes = chunk.nodes
+                val shift = (firstLine - 1) shl MAX_BITS_PER_NODE
+                for (i in 0 until chunk.edges.size)
+                    edges[pos++] = chunk.edges.getLong(i) + shift
+                firstLine += chunk.lines
+            }
+        }
+        GraphFormat.TXT -> {
+            val idMapper = Int2IntOpenHashMap()
+            chunks.forEach { chunk ->
+                for (i in 0 until chunk.edges.size) {
+                    val pair = chunk.edges.getLong(i)
+                    val from = (pair ushr 32).toInt()
+                    val to = pair.toInt()
+                    if (!idMapper.containsKey(from))
+                        idMapper[from] = idMapper.size
+                    if (!idMapper.containsKey(to))
+                        idMapper[to] = idMapper.size
+                    edges[pos++] = bidirectionalEdge(idMapper[from], idMapper[to])
+                }
+            }
+            nodes = idMapper.size
+        }
+    }
+    check(nodes >= 0) { "No header in the graph file" }
+    edges.shuffleEdges()
+    return Graph(nodes, edges)
+}
+
+// the same permutation as for the sequential parsers
+private fun LongArray.shuffleEdges() {
+    val rnd = Random(454)
+    for (i in indices) {
+        val r = rnd.nextInt(i + 1)
+        if (r != i) {
+            val tmpr = this[i]
+            this[i] = this[r]
+            this[r] = tmpr
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package benchmarks.util
+
+import connectivity.Edge
+import connectivity.concurrent.general.major.SpanningForestListener
+import java.io.File
+import kotlin.math.ceil
+
+// values below 2^SUB_BUCKET_BITS get their own buckets, each larger power of two is split into HALF buckets
+private const val SUB_BUCKET_BITS = 6
+private const val HALF = 1 shl (SUB_BUCKET_BITS - 1)
+private const val BUCKETS = HALF * (64 - SUB_BUCKET_BITS + 1)
+
+private val PERCENTILES = doubleArrayOf(0.5, 0.9, 0.99, 0.999, 0.9999)
+private const val PERCENTILE_COLUMNS = "p50,p90,p99,p99.9,p99.99"
+
+/**
+ * Log-linear histogram of non-negative values, e.g. latencies in nanoseconds, with a relative error below 1/32.
+ * Recording does not allocate and is not thread-safe: each thread records to its own histogram,
+ * which are merged with [add] afterwards.
+ */
+class LatencyHistogram {
+    private val counts = LongArray(BUCKETS)
+    var count = 0L
+        private set
+    var max = 0L
+        private set
+
+    fun record(value: Long) {
+        counts[bucket(maxOf(0, value))]++
+        count++
+        if (value > max) max = value
+    }
+
+    fun add(other: LatencyHistogram) {
+        for (i in counts.indices)
+            counts[i] += other.counts[i]
+        count += other.count
+        max = maxOf(max, other.max)
+    }
+
+    // the largest value of the bucket that holds the value of rank ceil(p * count)
+    fun percentile(p: Double): Long {
+        if (count == 0L) return 0
+        val rank = maxOf(1L, ceil(p * count).toLong())
+        var seen = 0L
+        for (i in counts.indices) {
+            seen += counts[i]
+            if (seen >= rank) return minOf(upperBound(i), max)
+        }
+        return max
+    }
+
+    fun reset() {
+        counts.fill(0)
+        count = 0
+        max = 0
+    }
+}
+
+private fun bucket(value: Long): Int {
+    if (value < 2 * HALF) return value.toInt()
+    val shift = 63 - java.lang.Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1)
+    return HALF * shift + (value ushr shift).toInt()
+}
+
+private fun upperBound(bucket: Int): Long {
+    if (bucket < 2 * HALF) return bucket.toLong()
+    val shift = bucket / HALF - 1
+    val sub = bucket - HALF * shift
+    return ((sub + 1).toLong() shl shift) - 1
+}
+
+enum class OperationKind {
+    CONNECTED,
+    // the outcome is unknown
+    ADD,
+    REMOVE,
+    SPANNING_ADD,
+    NON_SPANNING_ADD,
+    REMOVE_WITH_REPLACEMENT,
+    REMOVE_WITHOUT_REPLACEMENT,
+    NON_SPANNING_REMOVE
+}
+
+/**
+ * Latency histograms of the benchmark threads by [OperationKind].
+ * With [withOutcomes] the implementation should report its forest changes to this listener,
+ * and the updates are split by their outcomes, otherwise they are recorded as [OperationKind.ADD] and [OperationKind.REMOVE].
+ */
+class OperationLatencies(threads: Int, private val withOutcomes: Boolean) : SpanningForestListener {
+    private val histograms = Array(threads) { Array(OperationKind.values().size) { LatencyHistogram() } }
+
+    // returns the start time of an operation of [thread], open-loop executors pass the scheduled one
+    fun start(thread: BenchmarkThread, startTime: Long = System.nanoTime()): Long {
+        thread.forestChange = NO_FOREST_CHANGE
+        return startTime
+    }
+
+    fun record(thread: BenchmarkThread, type: QueryType, startTime: Long, endTime: Long = System.nanoTime()) {
+        val latency = endTime - startTime
+        val kind = when (type) {
+            QueryType.CONNECTED -> OperationKind.CONNECTED
+            QueryType.ADD_EDGE -> when {
+                !withOutcomes -> OperationKind.ADD
+                thread.forestChange == LINK -> OperationKind.SPANNING_ADD
+                else -> OperationKind.NON_SPANNING_ADD
+            }
+            QueryType.REMOVE_EDGE -> when {
+                !withOutcomes -> OperationKind.REMOVE
+                thread.forestChange == CUT -> OperationKind.REMOVE_WITHOUT_REPLACEMENT
+                thread.forestChange == REPLACE -> OperationKind.REMOVE_WITH_REPLACEMENT
+                else -> OperationKind.NON_SPANNING_REMOVE
+            }
+        }
+        histograms[thread.threadId][kind.ordinal].record(latency)
+    }
+
+    // called by the thread that does the update
+    override fun onLink(edge: Edge) = change(LINK)
+
+    override fun onCut(edge: Edge) = change(CUT)
+
+    override fun onReplace(removed: Edge, replacement: Edge) = change(REPLACE)
+
+    private fun change(change: Int) {
+        (Thread.currentThread() as? BenchmarkThread)?.forestChange = change
+    }
+
+    // should be called after the threads finished
+    fun merged(): Map<OperationKind, LatencyHistogram> = OperationKind.values().associateWith { kind ->
+        LatencyHistogram().also { merged -> histograms.forEach { merged.add(it[kind.ordinal]) } }
+    }
+
+    fun reset() = histograms.forEach { thread -> thread.forEach { it.reset() } }
+
+    /**
+     * Appends the percentiles in nanoseconds of each recorded operation kind to the CSV file [filename].
+     */
+    fun appendCsv(filename: String, benchmark: String, params: String) {
+        val file = File(filename)
+        val header = !file.exists()
+        file.appendText(buildString {
+            if (header)
+                append("benchmark,params,operation,count,$PERCENTILE_COLUMNS,max\n")
+            for ((kind, histogram) in merged()) {
+                if (histogram.count == 0L) continue
+                append("$benchmark,$params,$kind,${histogram.count},")
+                append(PERCENTILES.joinToString(",") { histogram.percentile(it).toString() })
+                append(",${histogram.max}\n")
+            }
+        })
+    }
+}
@@ -4,6 +4,41 @@ import java.lang.RuntimeException
 
 class Scenario(val nodes: Int, val threads: Int, val initialEdges: LongArray, val queries: Array<LongArray>)
 
+/**
+ * Produces the queries of one thread lazily, chunk by chunk.
+ */
+interface QuerySource {
+    // writes the next queries to the beginning of [chunk], returns their number or 0 if there are no queries left
+    fun next(chunk: LongArray): Int
+}
+
+/**
+ * A scenario whose queries are not stored, [sources] creates new sources of the same queries for every run.
+ * Each thread gets at most [queriesPerThread] queries.
+ */
+class StreamingScenario(
+    val nodes: Int,
+    val threads: Int,
+    val initialEdges: LongArray,
+    val queriesPerThread: Int,
+    val sources: () -> Array<QuerySource>
+)
+
+class ArrayQuerySource(private val queries: LongArray) : QuerySource {
+    private var position = 0
+
+    override fun next(chunk: LongArray): Int {
+        val count = minOf(chunk.size, queries.size - position)
+        System.arraycopy(queries, position, chunk, 0, count)
+        position += count
+        return count
+    }
+}
+
+fun Scenario.streaming() = StreamingScenario(nodes, threads, initialEdges, queries[0].size) {
+    Array<QuerySource>(threads) { ArrayQuerySource(queries[it]) }
+}
+
 enum class QueryType(val id: Int) {
     ADD_EDGE(1),
     REMOVE_EDGE(2),
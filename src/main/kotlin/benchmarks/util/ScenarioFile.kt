@@ -0,0 +1,130 @@
+package benchmarks.util
+
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.LongBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+
+// magic, version, nodes, threads, the number of initial edges and of the queries of each thread,
+// then the initial edges and the queries of each thread in the packed query encoding, all little-endian
+private const val SCENARIO_MAGIC = 0x44435343 // "DCSC"
+private const val SCENARIO_VERSION = 1
+private const val WRITE_CHUNK = 1 shl 16
+// a single mapping is limited by 2GB
+private const val MAX_MAPPED_LONGS = Int.MAX_VALUE / 8
+
+private fun headerSize(threads: Int) = 4 + 4 + 4 + 4 + 8 + 8L * threads
+
+/**
+ * A scenario file mapped read-only, the initial edges and the queries are views of the file.
+ */
+class MappedScenario(val nodes: Int, val threads: Int, val initialEdges: LongBuffer, val queries: Array<LongBuffer>) {
+    // the initial edges are copied, the queries are read from the file chunk by chunk
+    fun streaming() = StreamingScenario(nodes, threads, initialEdges.copy(), queries.map { it.limit() }.maxOrNull() ?: 0) {
+        Array<QuerySource>(threads) { BufferQuerySource(queries[it].duplicate()) }
+    }
+}
+
+class BufferQuerySource(private val queries: LongBuffer) : QuerySource {
+    override fun next(chunk: LongArray): Int {
+        val count = minOf(chunk.size, queries.remaining())
+        queries.get(chunk, 0, count)
+        return count
+    }
+}
+
+fun writeScenario(filename: String, scenario: Scenario) = writeScenario(filename, scenario.streaming())
+
+/**
+ * Writes the queries produced by [scenario] to [filename] atomically, so the output of any generator can be replayed.
+ */
+fun writeScenario(filename: String, scenario: StreamingScenario) {
+    val target = Paths.get(filename).toAbsolutePath()
+    val temporary = Files.createTempFile(target.parent, target.fileName.toString(), ".tmp")
+    try {
+        FileChannel.open(temporary, StandardOpenOption.WRITE).use { channel ->
+            val counts = LongArray(scenario.threads)
+            var position = headerSize(scenario.threads)
+            val buffer = ByteBuffer.allocate(8 * WRITE_CHUNK).order(ByteOrder.LITTLE_ENDIAN)
+            val chunk = LongArray(WRITE_CHUNK)
+
+            fun write(count: Int) {
+                buffer.clear()
+                buffer.asLongBuffer().put(chunk, 0, count)
+                buffer.limit(8 * count)
+                while (buffer.hasRemaining()) position += channel.write(buffer, position)
+            }
+
+            for (from in scenario.initialEdges.indices step WRITE_CHUNK) {
+                val count = minOf(WRITE_CHUNK, scenario.initialEdges.size - from)
+                System.arraycopy(scenario.initialEdges, from, chunk, 0, count)
+                write(count)
+            }
+            scenario.sources().forEachIndexed { thread, source ->
+                while (true) {
+                    val count = source.next(chunk)
+                    if (count == 0) break
+                    write(count)
+                    counts[thread] += count.toLong()
+                }
+            }
+
+            // the header is written last, when the number of queries is known
+            val header = ByteBuffer.allocate(headerSize(scenario.threads).toInt()).order(ByteOrder.LITTLE_ENDIAN)
+            header.putInt(SCENARIO_MAGIC)
+            header.putInt(SCENARIO_VERSION)
+            header.putInt(scenario.nodes)
+            header.putInt(scenario.threads)
+            header.putLong(scenario.initialEdges.size.toLong())
+            counts.forEach { header.putLong(it) }
+            header.flip()
+            var headerPosition = 0L
+            while (header.hasRemaining()) headerPosition += channel.write(header, headerPosition)
+            channel.force(true)
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } finally {
+        Files.deleteIfExists(temporary)
+    }
+}
+
+/**
+ * Maps a file written by [writeScenario], fails if the file is not a valid scenario file.
+ */
+fun mapScenario(filename: String): MappedScenario {
+    check(File(filename).exists()) { "No scenario file $filename" }
+    FileChannel.open(Paths.get(filename), StandardOpenOption.READ).use { channel ->
+        check(channel.size() >= headerSize(0)) { "$filename is not a scenario file" }
+        val prefix = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerSize(0)).order(ByteOrder.LITTLE_ENDIAN)
+        check(prefix.int == SCENARIO_MAGIC && prefix.int == SCENARIO_VERSION) { "$filename is not a scenario file of version $SCENARIO_VERSION" }
+        val nodes = prefix.int
+        val threads = prefix.int
+        check(threads >= 0 && channel.size() >= headerSize(threads)) { "$filename is truncated" }
+
+        val header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerSize(threads)).order(ByteOrder.LITTLE_ENDIAN)
+        header.position(headerSize(0).toInt() - 8)
+        val sizes = LongArray(threads + 1) { header.long }
+        check(sizes.all { it in 0L..MAX_MAPPED_LONGS }) { "Too many queries for a thread in $filename" }
+        check(channel.size() == headerSize(threads) + 8 * sizes.sum()) { "$filename is truncated" }
+
+        var position = headerSize(threads)
+        val regions = sizes.map { size ->
+            val region = channel.map(FileChannel.MapMode.READ_ONLY, position, 8 * size)
+                .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer()
+            position += 8 * size
+            region
+        }
+        return MappedScenario(nodes, threads, regions[0], regions.drop(1).toTypedArray())
+    }
+}
+
+private fun LongBuffer.copy(): LongArray {
+    val result = LongArray(limit())
+    duplicate().apply { position(0) }.get(result)
+    return result
+}
@@ -15,9 +15,9 @@ import kotlin.math.min
 import kotlin.random.Random
 
 fun randomGraph(nodes: Int, edges: Int, rnd: Random = Random(0)): Graph {
-    val edgesList = mutableListOf<Long>()
+    val result = LongArray(edges)
     val presentEdges = LongOpenHashSet()
-    repeat(edges) {
+    for (i in 0 until edges) {
         while (true) {
             val first = rnd.nextInt(nodes)
             val second = rnd.nextInt(nodes)
@@ -28,13 +28,13 @@ fun randomGraph(nodes: Int, edges: Int, rnd: Random = Random(0)): Graph {
                         max(first, second)
                     )
                 )) continue
-            edgesList.add(bidirectionalEdge(first, second))
+            result[i] = bidirectionalEdge(first, second)
             presentEdges.add(bidirectionalEdge(first, second))
             presentEdges.add(bidirectionalEdge(second, first))
             break
         }
     }
-    return Graph(nodes, edgesList.toLongArray())
+    return Graph(nodes, result)
 }
 
 fun randomDividedGraph(components: Int, nodesEach: Int, edgesEach: Int, rnd: Random = Random(0)): Graph {
@@ -42,7 +42,7 @@ fun randomDividedGraph(components: Int, nodesEach: Int, edgesEach: Int, rnd: Ran
     val edges = LongArray(edgesEach * components) {
         val graphId = it / edgesEach
         val edgeId = it % edgesEach
-        val edge = graphs[graphId].edges[edgeId]
+        val edge = graphs[graphId].edge(edgeId)
         bidirectionalEdge(edge.from() + graphId * nodesEach, edge.to() + graphId * nodesEach)
     }
     return Graph(nodesEach * components, edges)
@@ -57,7 +57,20 @@ fun downloadOrCreateAndParseGraph(name: String, type: String, url: String): Grap
         bz2 -> ".bz2"
         else -> ""
     }
-    if (!Paths.get(graphFile).toFile().exists()) {
+    // parsed and deduplicated edges of an earlier run
+    val cacheFile = graphCacheFile(name)
+    val cacheKey = graphCacheKey(name, type, url)
+    loadGraphCache(cacheFile, cacheKey)?.let {
+        println("Loaded $name from $cacheFile")
+        return it
+    }
+    generateSyntheticGraph(ext, url)?.let { graph ->
+        val result = Graph(graph.nodes, removeSameEdges(graph))
+        writeGraphCache(cacheFile, result, cacheKey)
+        return result
+    }
+    // a generated graph file may be left by other parameters, as the cache is missing or stale
+    if (ext.startsWith("rand") || !Paths.get(graphFile).toFile().exists()) {
         if (ext == "rand") {
             val parts = url.split(" ")
             val n = parts[0].toInt()
@@ -85,23 +98,47 @@ fun downloadOrCreateAndParseGraph(name: String, type: String, url: String): Grap
             println("Downloaded $graphFile")
         }
     }
-    val graph =  when {
-        ext.startsWith("rand") || ext == "gr" -> parseGrFile(graphFile, gz)
-        ext == "txt" -> parseTxtFile(graphFile, gz)
-        ext == "graph" -> parseGraphFile(graphFile, bz2)
+    val format = when {
+        ext.startsWith("rand") || ext == "gr" -> GraphFormat.GR
+        ext == "txt" -> GraphFormat.TXT
+        ext == "graph" -> GraphFormat.GRAPH
         else -> error("Unknown graph type: $ext")
     }
+    val compression = when {
+        gz -> Compression.GZIP
+        bz2 -> Compression.BZIP2
+        else -> Compression.NONE
+    }
+    val graph = parseGraphParallel(graphFile, format, compression)
     check(graph.nodes <= (1 shl MAX_BITS_PER_NODE)) { "The maximum number of vertices in a graph should not be greater than 2^${MAX_BITS_PER_NODE}" }
-    return Graph(
+    val result = Graph(
         graph.nodes,
-        removeSameEdges(graph.edges)
+        removeSameEdges(graph)
     )
+    writeGraphCache(cacheFile, result, cacheKey)
+    return result
 }
 
-fun removeSameEdges(edges: LongArray): LongArray {
+// large graphs that are generated in memory without a graph file, null for other types
+private fun generateSyntheticGraph(type: String, params: String): Graph? {
+    val parts = params.split(" ")
+    val graph = when (type) {
+        "rmat" -> rmatGraph(parts[0].toInt(), parts[1].toInt(), parts[2].toDouble(), parts[3].toDouble(), parts[4].toDouble())
+        "er" -> erdosRenyiGraph(parts[0].toInt(), parts[1].toLong())
+        "grid" -> gridGraph(parts[0].toInt(), parts[1].toInt(), parts[2].toDouble())
+        else -> return null
+    }
+    println("Generated a $type graph with ${graph.nodes} nodes and ${graph.edgeCount} edges")
+    check(graph.nodes <= (1 shl MAX_BITS_PER_NODE)) { "The maximum number of vertices in a graph should not be greater than 2^${MAX_BITS_PER_NODE}" }
+    return graph
+}
+
+fun removeSameEdges(graph: Graph): LongArray {
     val set = LongOpenHashSet()
-    for (edge in edges)
+    for (i in 0 until graph.edgeCount) {
+        val edge = graph.edge(i)
         set.add(bidirectionalEdge(min(edge.from(), edge.to()), max(edge.from(), edge.to())))
+    }
     val result = LongArray(set.size)
     var pos = 0
     val iterator = set.iterator()
@@ -118,11 +155,12 @@ fun removeSameEdges(edges: LongArray): LongArray {
 }
 
 fun writeGrFile(filename: String, graph: Graph) {
-    val m = graph.edges.size
+    val m = graph.edgeCount
 
     PrintWriter(filename).use { pw ->
         pw.println("p sp ${graph.nodes} $m")
-        graph.edges.forEach { edge ->
+        for (i in 0 until m) {
+            val edge = graph.edge(i)
             pw.println("a ${edge.from() + 1} ${edge.to() + 1} ${0}")
         }
     }
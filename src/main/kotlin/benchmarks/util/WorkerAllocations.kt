@@ -0,0 +1,37 @@
+package benchmarks.util
+
+import java.lang.management.ManagementFactory
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Bytes allocated by the worker threads of the executors while executing the queries, and the number of the queries.
+ * The GC profiler of JMH misses the workers, which are created in the setup and finish within an iteration,
+ * so they count their own allocations here.
+ */
+object WorkerAllocations {
+    private val threadBean = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+    private val bytes = AtomicLong()
+    private val queries = AtomicLong()
+
+    /**
+     * The bytes allocated by the current thread so far.
+     */
+    fun current(): Long = threadBean.getThreadAllocatedBytes(Thread.currentThread().id)
+
+    /**
+     * Adds the allocations of the current thread since [start], a value of [current], spent on [executed] queries.
+     */
+    fun record(start: Long, executed: Long) {
+        bytes.addAndGet(current() - start)
+        queries.addAndGet(executed)
+    }
+
+    /**
+     * Returns the allocated bytes per query recorded since the previous call, or null if no queries were recorded.
+     */
+    fun reset(): Double? {
+        val allocated = bytes.getAndSet(0)
+        val executed = queries.getAndSet(0)
+        return if (executed == 0L) null else allocated.toDouble() / executed
+    }
+}
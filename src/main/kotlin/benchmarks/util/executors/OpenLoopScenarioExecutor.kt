@@ -0,0 +1,160 @@
+package benchmarks.util.executors
+
+import benchmarks.util.*
+import connectivity.sequential.general.DynamicConnectivity
+import thirdparty.Aksenov239.fc.FCDynamicGraph
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.locks.LockSupport
+import kotlin.random.Random
+
+private const val DELETE_PERCENTAGE = 0.01
+private const val CHUNK_SIZE = 1 shl 14
+// waits longer than this are parked, shorter ones are spun
+private const val PARK_THRESHOLD_NANOS = 50_000L
+
+/**
+ * Executes the queries open-loop: the threads issue them at [rate] queries per second in total on a fixed schedule
+ * for [durationNanos], and the latency is measured from the scheduled start.
+ * A thread that falls behind starts the next queries late, so the queueing delay is included in their latencies
+ * instead of being omitted as in the closed-loop [ScenarioExecutor].
+ * The schedule and the latencies use [clock], tests pass a fake one.
+ */
+class OpenLoopScenarioExecutor(
+    val scenario: StreamingScenario,
+    dcpConstructor: (Int) -> DynamicConnectivity,
+    private val rate: Double,
+    private val durationNanos: Long,
+    val latencies: OperationLatencies = OperationLatencies(scenario.threads, false),
+    generatorThreads: Int = (scenario.threads + 7) / 8,
+    private val clock: () -> Long = System::nanoTime
+) {
+    private val dcp = dcpConstructor(scenario.nodes)
+
+    private val threads: Array<Thread>
+    private val completed = LongArray(scenario.threads)
+
+    private val generators = if (generatorThreads > 0) Executors.newFixedThreadPool(generatorThreads) { task ->
+        Thread(task).apply { isDaemon = true }
+    } else null
+
+    @Volatile
+    private var startTime = 0L
+    @Volatile
+    private var start = false
+
+    init {
+        if (dcp is FCDynamicGraph) {
+            val request = FCDynamicGraph.Request()
+            for (edge in scenario.initialEdges) {
+                request.set(0, edge.from(), edge.to())
+                dcp.addEdge(request)
+            }
+        } else {
+            for (edge in scenario.initialEdges) {
+                dcp.addEdge(edge.from(), edge.to())
+            }
+        }
+        val rnd = Random(547567)
+        // delete some edges to promote some edges from level 0
+        repeat((scenario.initialEdges.size * DELETE_PERCENTAGE).toInt()) {
+            val edge = scenario.initialEdges.random(rnd)
+            if (dcp is FCDynamicGraph) {
+                val request = FCDynamicGraph.Request()
+                request.set(0, edge.from(), edge.to())
+                dcp.removeEdge(request)
+            } else {
+                dcp.removeEdge(edge.from(), edge.to())
+            }
+        }
+
+        val threadsInitialized = AtomicInteger(0)
+        val sources = scenario.sources()
+        // the schedules of the threads are shifted, so that the queries are spread evenly
+        val interval = scenario.threads * 1e9 / rate
+
+        threads = Array(scenario.threads) { threadId ->
+            BenchmarkThread(threadId) {
+                val thread = Thread.currentThread() as BenchmarkThread
+                val source = sources[threadId]
+                var chunk = LongArray(CHUNK_SIZE)
+                var nextChunk = LongArray(CHUNK_SIZE)
+                var size = source.next(chunk)
+
+                threadsInitialized.incrementAndGet()
+
+                while (!start); // wait until start
+
+                val allocatedBefore = WorkerAllocations.current()
+                val begin = startTime
+                val offset = threadId.toDouble() / scenario.threads
+                var issued = 0L
+                execution@ while (size > 0) {
+                    val filled = nextChunk
+                    val next = generators?.submit(Callable { source.next(filled) })
+
+                    for (i in 0 until size) {
+                        val scheduled = begin + ((issued + offset) * interval).toLong()
+                        if (scheduled - begin >= durationNanos) break@execution
+                        waitUntil(scheduled)
+
+                        val query = chunk[i]
+                        val type = query.type()
+                        latencies.start(thread, scheduled)
+                        when (type) {
+                            QueryType.CONNECTED -> {
+                                dcp.connected(query.from(), query.to())
+                            }
+                            QueryType.ADD_EDGE -> {
+                                dcp.addEdge(query.from(), query.to())
+                            }
+                            QueryType.REMOVE_EDGE -> {
+                                dcp.removeEdge(query.from(), query.to())
+                            }
+                        }
+                        latencies.record(thread, type, scheduled, clock())
+                        issued++
+                    }
+
+                    if (next == null) {
+                        size = source.next(chunk)
+                    } else {
+                        size = next.get()
+                        nextChunk = chunk
+                        chunk = filled
+                    }
+                }
+                completed[threadId] = issued
+                WorkerAllocations.record(allocatedBefore, issued)
+            }
+        }
+        threads.forEach { it.start() }
+        while (threadsInitialized.get() != scenario.threads); // wait until all threads are initialized
+    }
+
+    /**
+     * Runs the schedule and returns the achieved rate in queries per second,
+     * which is below the target one if the implementation is saturated or the scenario is too short.
+     */
+    fun run(): Double {
+        // the first queries are scheduled slightly later, so that all threads are running by then
+        startTime = clock() + PARK_THRESHOLD_NANOS
+        start = true
+        threads.forEach { it.join() }
+        val elapsed = clock() - startTime
+        generators?.shutdownNow()
+        return completed.sum() * 1e9 / maxOf(elapsed, durationNanos)
+    }
+
+    private fun waitUntil(time: Long) {
+        while (true) {
+            val remaining = time - clock()
+            if (remaining <= 0) return
+            if (remaining > PARK_THRESHOLD_NANOS)
+                LockSupport.parkNanos(remaining - PARK_THRESHOLD_NANOS)
+            else
+                Thread.onSpinWait()
+        }
+    }
+}
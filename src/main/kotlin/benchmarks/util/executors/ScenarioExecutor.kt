@@ -5,6 +5,8 @@ import benchmarks.util.generators.OVERHEAD_RATIO
 import connectivity.sequential.general.DynamicConnectivity
 import kotlinx.atomicfu.atomic
 import thirdparty.Aksenov239.fc.FCDynamicGraph
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
 import java.util.concurrent.ThreadLocalRandom
 import java.util.concurrent.atomic.AtomicInteger
 import kotlin.random.Random
@@ -12,12 +14,31 @@ import kotlin.random.Random
 const val workAmount = 60 // simulate some other work
 private const val BATCH_SIZE = 15 // increase counter in batches to reduce contention
 private const val DELETE_PERCENTAGE = 0.01
+private const val CHUNK_SIZE = 1 shl 14 // queries generated at once for a thread
+
+/**
+ * Each thread executes its queries chunk by chunk. With [generatorThreads] > 0 the next chunk of a thread
+ * is generated by a separate pool while the current one is executed, otherwise the threads generate chunks themselves.
+ * The latency of every query is recorded to [latencies] if it is set,
+ * and the allocations of the threads to [WorkerAllocations].
+ */
+class ScenarioExecutor(
+    val scenario: StreamingScenario,
+    dcpConstructor: (Int) -> DynamicConnectivity,
+    generatorThreads: Int = (scenario.threads + 7) / 8,
+    private val latencies: OperationLatencies? = null
+) {
+    // stored scenarios are only copied chunk by chunk, which is not worth another thread
+    constructor(scenario: Scenario, dcpConstructor: (Int) -> DynamicConnectivity) : this(scenario.streaming(), dcpConstructor, 0)
 
-class ScenarioExecutor(val scenario: Scenario, dcpConstructor: (Int) -> DynamicConnectivity) {
     private val dcp = dcpConstructor(scenario.nodes)
 
     private val threads: Array<Thread>
 
+    private val generators = if (generatorThreads > 0) Executors.newFixedThreadPool(generatorThreads) { task ->
+        Thread(task).apply { isDaemon = true }
+    } else null
+
     private val operationsExecuted = atomic(0)
 
     @Volatile
@@ -50,40 +71,66 @@ class ScenarioExecutor(val scenario: Scenario, dcpConstructor: (Int) -> DynamicC
         }
 
         val expectedOverhead = scenario.threads * BATCH_SIZE / 2
-        val operationsNeeded = scenario.threads * scenario.queries[0].size / OVERHEAD_RATIO - expectedOverhead
+        val operationsNeeded = scenario.threads * scenario.queriesPerThread / OVERHEAD_RATIO - expectedOverhead
         val threadsInitialized = AtomicInteger(0)
+        val sources = scenario.sources()
 
         threads = Array(scenario.threads) { threadId ->
             BenchmarkThread(threadId) {
-                val queries = scenario.queries[threadId]
+                val thread = Thread.currentThread() as BenchmarkThread
+                val source = sources[threadId]
+                var chunk = LongArray(CHUNK_SIZE)
+                var nextChunk = LongArray(CHUNK_SIZE)
+                var size = source.next(chunk)
 
                 threadsInitialized.incrementAndGet()
 
                 while (!start); // wait until start
 
+                val allocatedBefore = WorkerAllocations.current()
+                var executed = 0L
                 var idRemainder = 0
 
-                for (query in queries) {
-                    when (query.type()) {
-                        QueryType.CONNECTED -> {
-                            dcp.connected(query.from(), query.to())
-                        }
-                        QueryType.ADD_EDGE -> {
-                            dcp.addEdge(query.from(), query.to())
+                execution@ while (size > 0) {
+                    val filled = nextChunk
+                    val next = generators?.submit(Callable { source.next(filled) })
+
+                    for (i in 0 until size) {
+                        val query = chunk[i]
+                        val type = query.type()
+                        val startTime = latencies?.start(thread) ?: 0L
+                        when (type) {
+                            QueryType.CONNECTED -> {
+                                dcp.connected(query.from(), query.to())
+                            }
+                            QueryType.ADD_EDGE -> {
+                                dcp.addEdge(query.from(), query.to())
+                            }
+                            QueryType.REMOVE_EDGE -> {
+                                dcp.removeEdge(query.from(), query.to())
+                            }
                         }
-                        QueryType.REMOVE_EDGE -> {
-                            dcp.removeEdge(query.from(), query.to())
+                        latencies?.record(thread, type, startTime)
+                        work(workAmount)
+                        executed++
+
+                        idRemainder++
+                        if (idRemainder == BATCH_SIZE) {
+                            idRemainder = 0
+                            val ops = operationsExecuted.addAndGet(BATCH_SIZE)
+                            if (ops >= operationsNeeded) break@execution
                         }
                     }
-                    work(workAmount)
 
-                    idRemainder++
-                    if (idRemainder == BATCH_SIZE) {
-                        idRemainder = 0
-                        val ops = operationsExecuted.addAndGet(BATCH_SIZE)
-                        if (ops >= operationsNeeded) break
+                    if (next == null) {
+                        size = source.next(chunk)
+                    } else {
+                        size = next.get()
+                        nextChunk = chunk
+                        chunk = filled
                     }
                 }
+                WorkerAllocations.record(allocatedBefore, executed)
             }
         }
         threads.forEach { it.start() }
@@ -93,6 +140,7 @@ class ScenarioExecutor(val scenario: Scenario, dcpConstructor: (Int) -> DynamicC
     fun run() {
         start = true
         threads.forEach { it.join() }
+        generators?.shutdownNow()
     }
 
     private inline fun work(amount: Int) {
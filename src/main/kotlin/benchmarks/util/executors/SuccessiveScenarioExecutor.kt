@@ -5,13 +5,30 @@ import connectivity.sequential.general.DynamicConnectivity
 import kotlinx.atomicfu.AtomicInt
 import kotlinx.atomicfu.atomic
 import thirdparty.Aksenov239.fc.FCDynamicGraph
+import java.nio.LongBuffer
 import java.util.concurrent.ThreadLocalRandom
 import java.util.concurrent.atomic.AtomicInteger
 
 private const val BATCH_SIZE = 15 // increase counter in batches to reduce contention
 
-class SuccessiveScenarioExecutor(val scenario: Scenario, dcpConstructor: (Int) -> DynamicConnectivity) {
-    private val dcp = dcpConstructor(scenario.nodes)
+/**
+ * The threads take the queries of a single shared stream [queries] in batches.
+ */
+class SuccessiveScenarioExecutor(
+    nodes: Int,
+    private val threadCount: Int,
+    private val initialEdges: LongBuffer,
+    private val queries: LongBuffer,
+    dcpConstructor: (Int) -> DynamicConnectivity
+) {
+    constructor(scenario: Scenario, dcpConstructor: (Int) -> DynamicConnectivity) :
+        this(scenario.nodes, scenario.threads, LongBuffer.wrap(scenario.initialEdges), LongBuffer.wrap(scenario.queries[0]), dcpConstructor)
+
+    // the queries are read from the mapped file without copying
+    constructor(scenario: MappedScenario, dcpConstructor: (Int) -> DynamicConnectivity) :
+        this(scenario.nodes, scenario.threads, scenario.initialEdges, scenario.queries[0], dcpConstructor)
+
+    private val dcp = dcpConstructor(nodes)
 
     private val pos: AtomicInt = atomic(0)
     private val threads: Array<Thread>
@@ -22,27 +39,27 @@ class SuccessiveScenarioExecutor(val scenario: Scenario, dcpConstructor: (Int) -
     init {
         if (dcp is FCDynamicGraph) {
             val request = FCDynamicGraph.Request()
-            for (edge in scenario.initialEdges) {
+            for (i in 0 until initialEdges.limit()) {
+                val edge = initialEdges.get(i)
                 request.set(0, edge.from(), edge.to())
                 dcp.addEdge(request)
             }
         } else {
-            for (edge in scenario.initialEdges) {
+            for (i in 0 until initialEdges.limit()) {
+                val edge = initialEdges.get(i)
                 dcp.addEdge(edge.from(), edge.to())
             }
         }
 
         val threadsInitialized = AtomicInteger(0)
 
-        threads = Array(scenario.threads) { threadId ->
+        threads = Array(threadCount) { threadId ->
             BenchmarkThread(threadId) {
-                val queries = scenario.queries[0]
-
                 threadsInitialized.incrementAndGet()
 
                 while (!start); // wait until start
 
-                val queriesSize = queries.size
+                val queriesSize = queries.limit()
 
                 while (true) {
                     val idStart = pos.getAndAdd(BATCH_SIZE)
@@ -50,7 +67,7 @@ class SuccessiveScenarioExecutor(val scenario: Scenario, dcpConstructor: (Int) -
 
                     for (id in idStart until (idStart + BATCH_SIZE)) {
                         if (id >= queriesSize) break
-                        val query = queries[id]
+                        val query = queries.get(id)
                         when (query.type()) {
                             QueryType.CONNECTED -> {
                                 dcp.connected(query.from(), query.to())
@@ -69,7 +86,7 @@ class SuccessiveScenarioExecutor(val scenario: Scenario, dcpConstructor: (Int) -
         }
 
         threads.forEach { it.start() }
-        while (threadsInitialized.get() != scenario.threads); // wait until all threads are initialized
+        while (threadsInitialized.get() != threadCount); // wait until all threads are initialized
     }
 
     fun run() {
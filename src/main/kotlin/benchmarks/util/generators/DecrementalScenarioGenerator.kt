@@ -16,6 +16,6 @@ class DecrementalScenarioGenerator {
                     threadQueries[i].from(),
                     threadQueries[i].to()
                 ).edgeToQuery(QueryType.REMOVE_EDGE)
-        return Scenario(graph.nodes, threads, graph.edges.toList().shuffled(rnd).toLongArray(), queries)
+        return Scenario(graph.nodes, threads, graph.edges(0, graph.edgeCount).toList().shuffled(rnd).toLongArray(), queries)
     }
 }
\ No newline at end of file
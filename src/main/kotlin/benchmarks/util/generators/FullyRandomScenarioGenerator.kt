@@ -7,8 +7,8 @@ class FullyRandomScenarioGenerator {
     private val rnd = Random(343)
 
     fun generate(graph: Graph, threads: Int, sizePerThread: Int, updateWeight: Int, readWeight: Int, makeOverhead: Boolean, initialWeight: Int): Scenario {
-        val initialEdgesNumber = (graph.edges.size / (1 + initialWeight)) * initialWeight
-        val initialEdges = graph.edges.copyOfRange(0, initialEdgesNumber)
+        val initialEdgesNumber = (graph.edgeCount / (1 + initialWeight)) * initialWeight
+        val initialEdges = graph.edges(0, initialEdgesNumber)
 
         val queries = Array(threads) {thread ->
             LongArray(sizePerThread * (if (makeOverhead) OVERHEAD_RATIO else 1)) {
@@ -22,7 +22,36 @@ class FullyRandomScenarioGenerator {
         return Scenario(graph.nodes, threads, initialEdges, queries)
     }
 
-    private fun randomQueryType(updateWeight: Int, readWeight: Int): QueryType {
+    /**
+     * The same distribution of queries as [generate], but the queries are generated lazily,
+     * each thread from its own random generator derived from [seed].
+     */
+    fun stream(graph: Graph, threads: Int, sizePerThread: Int, updateWeight: Int, readWeight: Int, makeOverhead: Boolean, initialWeight: Int, seed: Long = 343): StreamingScenario {
+        val initialEdgesNumber = (graph.edgeCount / (1 + initialWeight)) * initialWeight
+        val initialEdges = graph.edges(0, initialEdgesNumber)
+        val queriesPerThread = sizePerThread * (if (makeOverhead) OVERHEAD_RATIO else 1)
+        val seeds = Random(seed).let { seedRandom -> LongArray(threads) { seedRandom.nextLong() } }
+
+        return StreamingScenario(graph.nodes, threads, initialEdges, queriesPerThread) {
+            Array<QuerySource>(threads) { thread ->
+                val threadRnd = Random(seeds[thread])
+                var left = queriesPerThread
+                object : QuerySource {
+                    override fun next(chunk: LongArray): Int {
+                        val count = minOf(chunk.size, left)
+                        for (i in 0 until count) {
+                            val type = randomQueryType(updateWeight, readWeight, threadRnd)
+                            chunk[i] = graph.edge(threadRnd.nextInt(graph.edgeCount)).edgeToQuery(type)
+                        }
+                        left -= count
+                        return count
+                    }
+                }
+            }
+        }
+    }
+
+    private fun randomQueryType(updateWeight: Int, readWeight: Int, rnd: Random = this.rnd): QueryType {
         val r = (0 until (updateWeight + readWeight)).random(rnd)
         return if (r < readWeight) {
             QueryType.CONNECTED
@@ -35,6 +64,6 @@ class FullyRandomScenarioGenerator {
     }
 
     private fun randomEdge(graph: Graph): Long {
-        return graph.edges.random(rnd)
+        return graph.edge(rnd.nextInt(graph.edgeCount))
     }
 }
\ No newline at end of file
@@ -10,8 +10,8 @@ class IncrementalScenarioGenerator {
     fun generate(graph: Graph, threads: Int): Scenario {
         val queries = Array(threads) {
             if (it == 0) {
-                LongArray(graph.edges.size) {
-                    graph.edges[it].edgeToQuery(QueryType.ADD_EDGE)
+                LongArray(graph.edgeCount) {
+                    graph.edge(it).edgeToQuery(QueryType.ADD_EDGE)
                 }
             } else {
                 LongArray(0)
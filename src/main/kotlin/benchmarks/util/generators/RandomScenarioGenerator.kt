@@ -1,6 +1,7 @@
 package benchmarks.util.generators
 
 import benchmarks.util.*
+import it.unimi.dsi.fastutil.longs.LongArrayList
 import kotlin.random.Random
 
 val OVERHEAD_RATIO = 5
@@ -9,15 +10,15 @@ class RandomScenarioGenerator {
     private val rnd = Random(343)
 
     fun generate(graph: Graph, threads: Int, sizePerThread: Int, updateWeight: Int, readWeight: Int, makeOverhead: Boolean, initialWeight: Int): Scenario {
-        val initialEdgesNumber = (graph.edges.size / (1 + initialWeight)) * initialWeight
-        val initialEdges = graph.edges.copyOfRange(0, initialEdgesNumber)
+        val initialEdgesNumber = (graph.edgeCount / (1 + initialWeight)) * initialWeight
+        val initialEdges = graph.edges(0, initialEdgesNumber)
 
         val initialEdgesPerThread = initialEdgesNumber / threads
         val otherEdgesPerThread = initialEdgesPerThread / initialWeight
 
         val queries = Array(threads) {thread ->
-            val candidatesToAdd: MutableList<Long> = MutableList(otherEdgesPerThread) { graph.edges[initialEdgesNumber + thread * otherEdgesPerThread + it] }
-            val candidatesToRemove: MutableList<Long> = MutableList(initialEdgesPerThread) { graph.edges[thread * initialEdgesPerThread + it] }
+            val candidatesToAdd: MutableList<Long> = MutableList(otherEdgesPerThread) { graph.edge(initialEdgesNumber + thread * otherEdgesPerThread + it) }
+            val candidatesToRemove: MutableList<Long> = MutableList(initialEdgesPerThread) { graph.edge(thread * initialEdgesPerThread + it) }
 
             LongArray(sizePerThread * (if (makeOverhead) OVERHEAD_RATIO else 1)) {
                 var type: QueryType
@@ -50,7 +51,70 @@ class RandomScenarioGenerator {
         return Scenario(graph.nodes, threads, initialEdges, queries)
     }
 
-    private fun randomQueryType(updateWeight: Int, readWeight: Int): QueryType {
+    /**
+     * The same distribution of queries as [generate], but the queries are generated lazily,
+     * each thread from its own random generator derived from [seed].
+     */
+    fun stream(graph: Graph, threads: Int, sizePerThread: Int, updateWeight: Int, readWeight: Int, makeOverhead: Boolean, initialWeight: Int, seed: Long = 343): StreamingScenario {
+        val initialEdgesNumber = (graph.edgeCount / (1 + initialWeight)) * initialWeight
+        val initialEdges = graph.edges(0, initialEdgesNumber)
+
+        val initialEdgesPerThread = initialEdgesNumber / threads
+        val otherEdgesPerThread = initialEdgesPerThread / initialWeight
+        val queriesPerThread = sizePerThread * (if (makeOverhead) OVERHEAD_RATIO else 1)
+        val seeds = Random(seed).let { seedRandom -> LongArray(threads) { seedRandom.nextLong() } }
+
+        return StreamingScenario(graph.nodes, threads, initialEdges, queriesPerThread) {
+            Array<QuerySource>(threads) { thread ->
+                RandomQuerySource(
+                    graph.nodes, queriesPerThread, updateWeight, readWeight, Random(seeds[thread]),
+                    LongArrayList(graph.edges(initialEdgesNumber + thread * otherEdgesPerThread, initialEdgesNumber + (thread + 1) * otherEdgesPerThread)),
+                    LongArrayList(graph.edges(thread * initialEdgesPerThread, (thread + 1) * initialEdgesPerThread))
+                )
+            }
+        }
+    }
+
+    private inner class RandomQuerySource(
+        private val nodes: Int,
+        private var left: Int,
+        private val updateWeight: Int,
+        private val readWeight: Int,
+        private val threadRnd: Random,
+        private val candidatesToAdd: LongArrayList,
+        private val candidatesToRemove: LongArrayList
+    ) : QuerySource {
+        override fun next(chunk: LongArray): Int {
+            val count = minOf(chunk.size, left)
+            for (i in 0 until count) {
+                var type: QueryType
+                while (true) {
+                    type = randomQueryType(updateWeight, readWeight, threadRnd)
+                    if (type == QueryType.ADD_EDGE && candidatesToAdd.isEmpty) continue
+                    if (type == QueryType.REMOVE_EDGE && candidatesToRemove.isEmpty) continue
+                    break
+                }
+
+                chunk[i] = when (type) {
+                    QueryType.CONNECTED -> randomEdge(nodes, threadRnd)
+                    QueryType.ADD_EDGE -> {
+                        val edge = candidatesToAdd.pop(threadRnd.nextInt(candidatesToAdd.size))
+                        candidatesToRemove.add(edge)
+                        edge
+                    }
+                    QueryType.REMOVE_EDGE -> {
+                        val edge = candidatesToRemove.pop(threadRnd.nextInt(candidatesToRemove.size))
+                        candidatesToAdd.add(edge)
+                        edge
+                    }
+                }.edgeToQuery(type)
+            }
+            left -= count
+            return count
+        }
+    }
+
+    private fun randomQueryType(updateWeight: Int, readWeight: Int, rnd: Random = this.rnd): QueryType {
         val r = (0 until (updateWeight + readWeight)).random(rnd)
         return if (r < readWeight) {
             QueryType.CONNECTED
@@ -69,7 +133,14 @@ class RandomScenarioGenerator {
         return result
     }
 
-    private fun randomEdge(nodes: Int): Long {
+    private fun LongArrayList.pop(i: Int): Long {
+        val result = getLong(i)
+        set(i, getLong(size - 1))
+        removeLong(size - 1)
+        return result
+    }
+
+    private fun randomEdge(nodes: Int, rnd: Random = this.rnd): Long {
         while (true) {
             val first = rnd.nextInt(nodes)
             val second = rnd.nextInt(nodes)
@@ -16,4 +16,7 @@ typealias ConcurrentEdgeSet = ConcurrentHashMultiset<Long>
 internal const val NO_EDGE: Long = -1L
 internal const val CLOSED: Long = -2L
 internal const val INITIAL_SIZE = 8
-const val SAMPLING_TRIES = 12L
\ No newline at end of file
+const val SAMPLING_TRIES = 12L
+// lock-free connectivity reads give up after this number of retries
+const val CONNECTED_TRIES = 64
+const val SNAPSHOT_TRIES = 16
@@ -0,0 +1,28 @@
+package connectivity.concurrent
+
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Counts how many retries lock-free reads needed.
+ * Bucket i holds reads that succeeded after i retries, the last bucket also holds the reads that needed more,
+ * reads that gave up are counted as fallbacks.
+ */
+class RetryHistogram(val maxRetries: Int) {
+    private val buckets = Array(maxRetries + 1) { LongAdder() }
+    private val fallbacks = LongAdder()
+
+    fun record(retries: Int) = buckets[minOf(retries, maxRetries)].increment()
+
+    fun recordFallback() = fallbacks.increment()
+
+    fun counts() = LongArray(buckets.size) { buckets[it].sum() }
+
+    fun fallbacks() = fallbacks.sum()
+
+    fun reset() {
+        buckets.forEach { it.reset() }
+        fallbacks.reset()
+    }
+
+    override fun toString() = "retries=${counts().contentToString()}, fallbacks=${fallbacks()}"
+}
@@ -2,6 +2,7 @@ package connectivity.concurrent.general
 
 import connectivity.*
 import connectivity.NO_EDGE
+import connectivity.concurrent.RetryHistogram
 import connectivity.concurrent.tree.*
 import connectivity.concurrent.tree.updateNonTreeEdges
 import connectivity.sequential.general.DynamicConnectivity
@@ -22,6 +23,14 @@ class NBReadsCoarseGrainedLockingDynamicConnectivity(private val size: Int) : Dy
         levels = Array(levelNumber) { ConcurrentEulerTourTree(size) }
     }
 
+    // retry bound for lock-free connectivity reads
+    var connectedTries = CONNECTED_TRIES
+    var retryHistogram: RetryHistogram?
+        get() = levels[0].retryHistogram
+        set(value) {
+            levels[0].retryHistogram = value
+        }
+
     @Synchronized
     override fun addEdge(u: Int, v: Int) {
         val edge = makeEdge(u, v)
@@ -92,15 +101,21 @@ class NBReadsCoarseGrainedLockingDynamicConnectivity(private val size: Int) : Dy
                 break
             } else {
                 // linearization point, do an actual split on this level
-                uRoot.version.inc()
-                vRoot.version.inc()
+                uRoot.version++
+                vRoot.version++
                 uRoot.parent = null
                 vRoot.parent = null
             }
         }
     }
 
-    override fun connected(u: Int, v: Int) = levels[0].connected(u, v)
+    override fun connected(u: Int, v: Int): Boolean {
+        levels[0].tryConnected(u, v, connectedTries)?.let { return it }
+        // the graph changes too often, wait for the writers so that the reader does not starve
+        synchronized(this) {
+            return levels[0].connectedSimple(u, v, null)
+        }
+    }
 
     private fun sample(node: ConcurrentETTNode, rank: Int, tries: Long, additionalRoot: ConcurrentETTNode): Long {
         if (!node.hasNonTreeEdges) return -tries
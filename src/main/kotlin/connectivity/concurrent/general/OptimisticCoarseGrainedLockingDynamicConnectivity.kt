@@ -0,0 +1,51 @@
+package connectivity.concurrent.general
+
+import connectivity.sequential.general.DynamicConnectivity
+import connectivity.sequential.general.SequentialDynamicConnectivity
+import java.util.concurrent.locks.StampedLock
+
+/**
+ * Software replacement of lock elision for [CoarseGrainedLockingDynamicConnectivity].
+ * Queries run speculatively and are validated afterwards, updates take the write lock.
+ */
+class OptimisticCoarseGrainedLockingDynamicConnectivity(size: Int) : DynamicConnectivity {
+    private val lock = StampedLock()
+    private val connectivity = SequentialDynamicConnectivity(size)
+    // a tree has at most size vertex nodes and two nodes per edge, so no valid walk to the root is longer
+    private val maxWalk = 3 * size
+
+    override fun addEdge(u: Int, v: Int) {
+        val stamp = lock.writeLock()
+        try {
+            connectivity.addEdge(u, v)
+        } finally {
+            lock.unlockWrite(stamp)
+        }
+    }
+
+    override fun removeEdge(u: Int, v: Int) {
+        val stamp = lock.writeLock()
+        try {
+            connectivity.removeEdge(u, v)
+        } finally {
+            lock.unlockWrite(stamp)
+        }
+    }
+
+    override fun connected(u: Int, v: Int): Boolean {
+        // a query only walks up to the roots, but a torn read of the parent links can see a cycle
+        // (edge nodes may have equal priorities), so the walk is bounded and a longer one is retried under the lock
+        val optimisticStamp = lock.tryOptimisticRead()
+        if (optimisticStamp != 0L) {
+            val result = connectivity.tryConnected(u, v, maxWalk)
+            if (result != null && lock.validate(optimisticStamp)) return result
+        }
+        // a concurrent update, retry under the lock
+        val stamp = lock.readLock()
+        try {
+            return connectivity.connected(u, v)
+        } finally {
+            lock.unlockRead(stamp)
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package connectivity.concurrent.general.major
+
+import connectivity.ConcurrentEdgeMap
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+
+// magic, version, size, the number of edges, checksum, then an edge packed with its state for each edge, little-endian
+private const val CHECKPOINT_MAGIC = 0x44434350 // "DCCP"
+private const val CHECKPOINT_VERSION = 1
+private const val HEADER_SIZE = 4 + 4 + 4 + 8 + 8
+private const val BUFFER_EDGES = 1 shl 16
+
+internal class CheckpointData(val size: Int, val edges: LongArray, val states: IntArray)
+
+// writes the file sequentially and moves it to [path] atomically
+internal fun writeCheckpoint(path: String, size: Int, states: ConcurrentEdgeMap<EdgeState>) {
+    val target = Paths.get(path).toAbsolutePath()
+    val temporary = Files.createTempFile(target.parent, target.fileName.toString(), ".tmp")
+    try {
+        FileChannel.open(temporary, StandardOpenOption.WRITE).use { channel ->
+            val buffer = ByteBuffer.allocateDirect(8 * BUFFER_EDGES).order(ByteOrder.LITTLE_ENDIAN)
+            var position = HEADER_SIZE.toLong()
+            var count = 0L
+            var hash = FNV_OFFSET
+
+            fun flush() {
+                buffer.flip()
+                while (buffer.hasRemaining()) position += channel.write(buffer, position)
+                buffer.clear()
+            }
+
+            val iterator = states.IteratorLong()
+            while (iterator.hasNext()) {
+                val edge = iterator.nextLong()
+                val state = states[edge] ?: continue
+                check(state.status() == SPANNING || state.status() == NON_SPANNING) { "An update is in progress" }
+                val packed = pack(state, edge)
+                buffer.putLong(packed)
+                hash = (hash xor packed) * FNV_PRIME
+                count++
+                if (!buffer.hasRemaining()) flush()
+            }
+            flush()
+
+            buffer.putInt(CHECKPOINT_MAGIC)
+            buffer.putInt(CHECKPOINT_VERSION)
+            buffer.putInt(size)
+            buffer.putLong(count)
+            buffer.putLong(hash)
+            buffer.flip()
+            var headerPosition = 0L
+            while (buffer.hasRemaining()) headerPosition += channel.write(buffer, headerPosition)
+            channel.force(true)
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } finally {
+        Files.deleteIfExists(temporary)
+    }
+}
+
+internal fun readCheckpoint(path: String): CheckpointData {
+    FileChannel.open(Paths.get(path), StandardOpenOption.READ).use { channel ->
+        val buffer = ByteBuffer.allocateDirect(8 * BUFFER_EDGES).order(ByteOrder.LITTLE_ENDIAN)
+        buffer.limit(HEADER_SIZE)
+        var position = 0L
+        while (buffer.hasRemaining()) {
+            val read = channel.read(buffer, position)
+            check(read > 0) { "$path is not a checkpoint" }
+            position += read
+        }
+        buffer.flip()
+        check(buffer.int == CHECKPOINT_MAGIC && buffer.int == CHECKPOINT_VERSION) { "$path is not a checkpoint of version $CHECKPOINT_VERSION" }
+        val size = buffer.int
+        val count = buffer.long
+        val checksum = buffer.long
+        check(count in 0..Int.MAX_VALUE && channel.size() == HEADER_SIZE + 8 * count) { "$path is truncated" }
+
+        val edges = LongArray(count.toInt())
+        val states = IntArray(count.toInt())
+        var hash = FNV_OFFSET
+        var i = 0
+        while (i < edges.size) {
+            buffer.clear()
+            buffer.limit(8 * minOf(BUFFER_EDGES, edges.size - i))
+            while (buffer.hasRemaining()) position += channel.read(buffer, position)
+            buffer.flip()
+            while (buffer.hasRemaining()) {
+                val packed = buffer.long
+                hash = (hash xor packed) * FNV_PRIME
+                edges[i] = packed.edge()
+                states[i] = packed.state()
+                i++
+            }
+        }
+        check(hash == checksum) { "$path is corrupted" }
+        return CheckpointData(size, edges, states)
+    }
+}
+
+// FNV-1a over the packed edges
+private const val FNV_OFFSET = -0x340d631b7bdddcdbL
+private const val FNV_PRIME = 0x100000001b3L
@@ -0,0 +1,80 @@
+package connectivity.concurrent.general.major
+
+import connectivity.Edge
+import connectivity.upperPowerOfTwo
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+// an event is the forest edge with the merge flag
+private const val MERGE = 1L shl 62
+
+fun Long.isMerge() = this and MERGE != 0L
+fun Long.eventEdge(): Edge = this and MERGE.inv()
+
+/**
+ * Publishes component merges (a forest link) and splits (a forest cut without a replacement)
+ * to a bounded lock-free ring buffer, replacements do not change the components and are not published.
+ * The events of a component are published in the order of its updates, as the listener is called under its locks.
+ *
+ * Updates never wait for the consumer: when the buffer is full, the event is dropped and counted in [lost],
+ * so a consumer that observes lost events should rebuild its state with [MajorDynamicConnectivity.connected].
+ * [drain] should be called by a single consumer thread.
+ */
+class ComponentChangeFeed(capacity: Int = 1 shl 16) : SpanningForestListener {
+    init {
+        // with a single slot an unread event and a free slot have the same sequence
+        require(capacity >= 2) { "The capacity should be at least 2" }
+    }
+
+    private val capacity = 1 shl upperPowerOfTwo(capacity)
+    private val mask = this.capacity - 1
+    private val events = LongArray(this.capacity)
+    // the position at which the slot is ready to be written, or that plus one when it is ready to be read
+    private val sequences = AtomicLongArray(this.capacity).apply {
+        for (i in 0 until length()) set(i, i.toLong())
+    }
+    private val tail = AtomicLong()
+    private var head = 0L
+    private val lostEvents = AtomicLong()
+
+    val lost: Long get() = lostEvents.get()
+
+    override fun onLink(edge: Edge) = publish(edge or MERGE)
+
+    override fun onCut(edge: Edge) = publish(edge)
+
+    override fun onReplace(removed: Edge, replacement: Edge) {}
+
+    private fun publish(event: Long) {
+        var position = tail.get()
+        while (true) {
+            val sequence = sequences.get(position.toInt() and mask)
+            position = when {
+                sequence == position -> if (tail.compareAndSet(position, position + 1)) break else tail.get()
+                sequence < position -> { // full
+                    lostEvents.incrementAndGet()
+                    return
+                }
+                else -> tail.get()
+            }
+        }
+        val slot = position.toInt() and mask
+        events[slot] = event
+        sequences.lazySet(slot, position + 1)
+    }
+
+    /**
+     * Moves up to [batch] size published events to [batch], returns their number.
+     */
+    fun drain(batch: LongArray): Int {
+        var count = 0
+        while (count < batch.size) {
+            val slot = head.toInt() and mask
+            if (sequences.get(slot) != head + 1) break
+            batch[count++] = events[slot]
+            sequences.lazySet(slot, head + capacity)
+            head++
+        }
+        return count
+    }
+}
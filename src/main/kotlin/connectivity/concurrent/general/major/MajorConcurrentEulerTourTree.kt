@@ -4,9 +4,12 @@ import com.google.common.collect.ConcurrentHashMultiset
 import connectivity.*
 import connectivity.INITIAL_SIZE
 import connectivity.NO_EDGE
+import connectivity.concurrent.RetryHistogram
 import connectivity.concurrent.tree.ConcurrentETTNode
 import connectivity.sequential.tree.*
 import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.locks.ReentrantLock
 import kotlin.random.Random
 
 class Node(@JvmField val priority: Int, isVertex: Boolean = true, treeEdge: Edge = NO_EDGE) {
@@ -30,17 +33,36 @@ class Node(@JvmField val priority: Int, isVertex: Boolean = true, treeEdge: Edge
     var version = 0
     @Volatile @JvmField
     var removeEdgeOperation: RemovalOperationInfo? = null
+    // the lock of the component while the node is its root, roots are always vertices
+    @JvmField
+    val lock: ReentrantLock? = if (isVertex) ReentrantLock() else null
 }
 
-class MajorConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
+class MajorConcurrentEulerTourTree(val size: Int, useRootHints: Boolean = false) : TreeDynamicConnectivity {
     private val nodes: Array<Node>
     private val edgeToNode = ConcurrentEdgeMap<Node>(size, false)
+    var retryHistogram: RetryHistogram? = null
+    // optional (root priority, root version) of the last validated root of each vertex
+    private val rootHints: AtomicLongArray?
+    // roots are always vertices, so a root can be found by its priority
+    private val vertexByPriority: IntArray?
 
     init {
         // priorities for vertices are numbers in [0, size)
         // priorities for edges are random numbers in [size, 11 * size)
         // priorities for nodes are less so that roots will be always vertices, not edges
         nodes = Array(size) { Node(((1_000_000_007L * (it + 10)) % size).toInt()) }
+        if (useRootHints) {
+            vertexByPriority = IntArray(size)
+            for (v in 0 until size)
+                vertexByPriority[nodes[v].priority] = v
+            rootHints = AtomicLongArray(size)
+            for (v in 0 until size)
+                rootHints.lazySet(v, packHint(nodes[v].priority, 0))
+        } else {
+            vertexByPriority = null
+            rootHints = null
+        }
     }
 
     override fun addEdge(u: Int, v: Int) = addEdge(u, v, true, null)
@@ -57,11 +79,11 @@ class MajorConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
         val vRoot = root(vNode, additionalRoot)
 
         // linearization point
+        // the version of the remaining root is not changed, the other root gets a parent
+        // and concurrent readers notice that, so root hints of the remaining component stay valid
         if (uRoot.priority < vRoot.priority) {
-            uRoot.version.inc()
             vRoot.parent = uRoot
         } else {
-            vRoot.version.inc()
             uRoot.parent = vRoot
         }
 
@@ -118,8 +140,8 @@ class MajorConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
         if (doSplit) {
             // linearization point
             // one of them was already null and the other lead to another tree
-            component1.version.inc()
-            component2.version.inc()
+            component1.version++
+            component2.version++
             component1.parent = null
             component2.parent = null
         }
@@ -131,8 +153,21 @@ class MajorConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
         return Pair(component1, component2)
     }
 
-    override fun connected(u: Int, v: Int): Boolean {
-        while (true) {
+    // retries until the roots are validated
+    override fun connected(u: Int, v: Int): Boolean = tryConnected(u, v, Int.MAX_VALUE)!!
+
+    /**
+     * Lock-free [connected] that gives up after [tries] unsuccessful attempts and returns null then.
+     */
+    fun tryConnected(u: Int, v: Int, tries: Int): Boolean? {
+        val hints = rootHints
+        if (hints != null) {
+            connectedByHints(u, v, hints)?.let {
+                retryHistogram?.record(0)
+                return it
+            }
+        }
+        for (attempt in 0 until tries) {
             val uRoot = root(u)
             val uRootVersion = uRoot.version
             val vRoot = root(v)
@@ -142,8 +177,78 @@ class MajorConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
                 if (!rereadRoot(v, vRoot, vRootVersion)) continue
                 if (!checkRoot(uRoot, uRootVersion)) continue
             }
+            retryHistogram?.record(attempt)
+            if (hints != null) {
+                // refresh with the validated roots only
+                updateHint(hints, u, uRoot, uRootVersion)
+                if (uRoot !== vRoot)
+                    updateHint(hints, v, vRoot, vRootVersion)
+                else if (uRootVersion == vRootVersion)
+                    updateHint(hints, v, uRoot, uRootVersion)
+            }
             return uRoot === vRoot
         }
+        retryHistogram?.recordFallback()
+        return null
+    }
+
+    // O(1) check, returns null if any of the hints is outdated
+    private fun connectedByHints(u: Int, v: Int, hints: AtomicLongArray): Boolean? {
+        val uHint = hints[u]
+        val uRoot = hintedRoot(uHint) ?: return null
+        val vHint = hints[v]
+        val vRoot = hintedRoot(vHint) ?: return null
+        if (uRoot === vRoot)
+            return if (uHint == vHint) true else null
+        return if (checkRoot(uRoot, uHint.hintVersion())) false else null
+    }
+
+    // a root can not become a root again without a version change, so a valid hint
+    // means that the vertex has stayed in the component of the hinted root
+    private fun hintedRoot(hint: Long): Node? {
+        val root = nodes[vertexByPriority!![hint.hintPriority()]]
+        return if (checkRoot(root, hint.hintVersion())) root else null
+    }
+
+    private fun updateHint(hints: AtomicLongArray, v: Int, root: Node, version: Int) {
+        val hint = packHint(root.priority, version)
+        if (hints[v] != hint) hints.lazySet(v, hint)
+    }
+
+    /**
+     * Answers [connected] for all [pairs] (packed by [makeEdge]) at a single moment.
+     * Returns false if the involved roots kept changing during [tries] attempts.
+     */
+    fun connectedSnapshot(pairs: LongArray, result: BooleanArray, tries: Int): Boolean {
+        val roots = arrayOfNulls<Node>(2 * pairs.size)
+        val versions = IntArray(2 * pairs.size)
+        repeat(tries) {
+            for (i in pairs.indices) {
+                val uRoot = root(pairs[i].u())
+                roots[2 * i] = uRoot
+                versions[2 * i] = uRoot.version
+                val vRoot = root(pairs[i].v())
+                roots[2 * i + 1] = vRoot
+                versions[2 * i + 1] = vRoot.version
+            }
+            // validate all roots together, so that every answer holds at the end of the first collect
+            if (rereadRoots(pairs, roots, versions)) {
+                for (i in pairs.indices)
+                    result[i] = roots[2 * i] === roots[2 * i + 1]
+                return true
+            }
+        }
+        return false
+    }
+
+    private fun rereadRoots(pairs: LongArray, roots: Array<Node?>, versions: IntArray): Boolean {
+        for (i in pairs.indices) {
+            if (!rereadRoot(pairs[i].u(), roots[2 * i]!!, versions[2 * i])) return false
+            if (!rereadRoot(pairs[i].v(), roots[2 * i + 1]!!, versions[2 * i + 1])) return false
+        }
+        for (root in roots)
+            if (root!!.parent != null) return false
+        return true
     }
 
     private inline fun checkRoot(root: Node, shouldHaveVersion: Int) =
@@ -186,6 +291,163 @@ class MajorConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
         merge(div.second, div.first)
     }
 
+    /**
+     * Builds the tours of the level [level] forest of an empty tree in linear time.
+     * The forest consists of the spanning [edges] of rank at least [level],
+     * the non-spanning edges of rank [level] are stored in the vertices, see [MajorDynamicConnectivity.checkpoint].
+     */
+    internal fun restore(level: Int, edges: LongArray, edgeStates: IntArray) {
+        // the forest as adjacency lists of edge indices
+        val offsets = IntArray(size + 1)
+        for (i in edges.indices) {
+            val state = edgeStates[i]
+            val edge = edges[i]
+            if (state.status() == SPANNING && state.rank() >= level) {
+                offsets[edge.u()]++
+                offsets[edge.v()]++
+            } else if (state.status() == NON_SPANNING && state.rank() == level) {
+                nodes[edge.u()].nonTreeEdges!!.add(edge)
+                nodes[edge.v()].nonTreeEdges!!.add(edge)
+            }
+        }
+        for (v in 1..size)
+            offsets[v] += offsets[v - 1]
+        val adjacent = IntArray(offsets[size])
+        for (i in edges.indices.reversed()) {
+            val state = edgeStates[i]
+            if (state.status() == SPANNING && state.rank() >= level) {
+                adjacent[--offsets[edges[i].u()]] = i
+                adjacent[--offsets[edges[i].v()]] = i
+            }
+        }
+
+        val visited = BooleanArray(size)
+        val next = IntArray(size)
+        val parentEdge = IntArray(size)
+        val stack = IntArray(size)
+        val tour = arrayOfNulls<Node>(3 * size)
+        for (root in 0 until size) {
+            if (visited[root]) continue
+            visited[root] = true
+            if (offsets[root] == offsets[root + 1]) {
+                nodes[root].recalculateAll()
+                continue
+            }
+            // the tour of a tree is [v, (v, w), tour of w, (w, v), ...] as in addEdge
+            var length = 0
+            var top = 0
+            tour[length++] = nodes[root]
+            stack[top++] = root
+            next[root] = offsets[root]
+            while (top > 0) {
+                val v = stack[top - 1]
+                if (next[v] < offsets[v + 1]) {
+                    val i = adjacent[next[v]++]
+                    val w = if (edges[i].u() == v) edges[i].v() else edges[i].u()
+                    if (visited[w]) continue // the parent
+                    visited[w] = true
+                    parentEdge[w] = i
+                    tour[length++] = restoredEdgeNode(v, w, edgeStates[i].rank() == level)
+                    tour[length++] = nodes[w]
+                    stack[top++] = w
+                    next[w] = offsets[w]
+                } else {
+                    top--
+                    if (top > 0)
+                        tour[length++] = restoredEdgeNode(v, stack[top - 1], edgeStates[parentEdge[v]].rank() == level)
+                }
+            }
+            buildTreap(tour, length)
+        }
+    }
+
+    private fun restoredEdgeNode(u: Int, v: Int, isCurrentLevelTreeEdge: Boolean): Node {
+        val edge = makeDirectedEdge(u, v)
+        val node = Node(
+            size + ThreadLocalRandom.current().nextInt(10 * size),
+            false,
+            if (isCurrentLevelTreeEdge && u < v) edge else NO_EDGE
+        )
+        edgeToNode.put(edge, node)
+        return node
+    }
+
+    // Cartesian tree of the first [length] nodes of [tour] by priorities
+    private fun buildTreap(tour: Array<Node?>, length: Int) {
+        val stack = arrayOfNulls<Node>(length)
+        var top = 0
+        for (i in 0 until length) {
+            val node = tour[i]!!
+            var last: Node? = null
+            while (top > 0 && stack[top - 1]!!.priority > node.priority)
+                last = stack[--top]
+            node.left = last
+            last?.parent = node
+            if (top > 0) {
+                stack[top - 1]!!.right = node
+                node.parent = stack[top - 1]
+            }
+            stack[top++] = node
+        }
+        val root = stack[0]!!
+        root.parent = null
+        // recalculate in the reversed preorder, so that the children go first
+        var visited = 0
+        top = 0
+        stack[top++] = root
+        while (top > 0) {
+            val node = stack[--top]!!
+            tour[visited++] = node
+            node.left?.let { stack[top++] = it }
+            node.right?.let { stack[top++] = it }
+        }
+        for (i in length - 1 downTo 0)
+            tour[i]!!.recalculateAll()
+    }
+
+    // the vertex of each vertex priority, so that a vertex can be identified by its node
+    internal fun verticesByPriority(): IntArray = vertexByPriority ?: IntArray(size).also { vertices ->
+        for (v in 0 until size)
+            vertices[nodes[v].priority] = v
+    }
+
+    /**
+     * Writes the root vertex of the tree of [root] to [out] for all its vertices,
+     * the tree should not change during the call. Large trees are split between the workers of [pool].
+     */
+    internal fun labelTree(root: Node, vertices: IntArray, out: IntArray, pool: ForkJoinPool) {
+        val label = vertices[root.priority]
+        if (root.size <= LABEL_FORK_SIZE)
+            labelSubtree(root, label, vertices, out)
+        else
+            pool.invoke(LabelTask(root, label, vertices, out))
+    }
+
+    private fun labelSubtree(node: Node, label: Int, vertices: IntArray, out: IntArray) {
+        // vertices have the priorities in [0, size)
+        if (node.priority < size) out[vertices[node.priority]] = label
+        node.left?.let { labelSubtree(it, label, vertices, out) }
+        node.right?.let { labelSubtree(it, label, vertices, out) }
+    }
+
+    private inner class LabelTask(
+        private val node: Node,
+        private val label: Int,
+        private val vertices: IntArray,
+        private val out: IntArray
+    ) : RecursiveAction() {
+        override fun compute() {
+            val left = node.left
+            val right = node.right
+            if (node.size <= LABEL_FORK_SIZE || left == null || right == null) {
+                labelSubtree(node, label, vertices, out)
+                return
+            }
+            if (node.priority < size) out[vertices[node.priority]] = label
+            invokeAll(LabelTask(left, label, vertices, out), LabelTask(right, label, vertices, out))
+        }
+    }
+
     private class SplitResults(var first: Node?, var second: Node?)
 
     /**
@@ -282,4 +544,11 @@ internal fun Node.recalculateUpNonTreeEdges() {
 internal inline fun Node.updateNonTreeEdges(body: Node.() -> Unit) {
     body()
     recalculateUpNonTreeEdges()
-}
\ No newline at end of file
+}
+
+// treaps up to this size are labeled by a single thread
+private const val LABEL_FORK_SIZE = 1 shl 12
+
+private fun packHint(priority: Int, version: Int): Long = (priority.toLong() shl 32) or (version.toLong() and 0xFFFFFFFFL)
+private fun Long.hintPriority(): Int = (this ushr 32).toInt()
+private fun Long.hintVersion(): Int = toInt()
@@ -1,10 +1,20 @@
 package connectivity.concurrent.general.major
 
 import connectivity.*
+import connectivity.concurrent.RetryHistogram
 import connectivity.concurrent.tree.ConcurrentETTNode
 import connectivity.sequential.general.DynamicConnectivity
-
-class MajorDynamicConnectivity(private val size: Int) : DynamicConnectivity {
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.ForkJoinPool
+import kotlin.concurrent.withLock
+
+class MajorDynamicConnectivity(
+    private val size: Int,
+    private val forestListener: SpanningForestListener? = null,
+    rootHints: Boolean = false // cache roots of vertices for connectivity reads
+) : DynamicConnectivity {
     private val levels: Array<MajorConcurrentEulerTourTree>
     val states = ConcurrentEdgeMap<EdgeState>()
 
@@ -15,9 +25,19 @@ class MajorDynamicConnectivity(private val size: Int) : DynamicConnectivity {
             levelNumber++
             maxSize *= 2
         }
-        levels = Array(levelNumber) { MajorConcurrentEulerTourTree(size) }
+        levels = Array(levelNumber) { MajorConcurrentEulerTourTree(size, rootHints && it == 0) }
     }
 
+    // retry bound for lock-free connectivity reads
+    var connectedTries = CONNECTED_TRIES
+    // optimistic attempts of connectedSnapshot before it locks the components
+    var snapshotTries = SNAPSHOT_TRIES
+    var retryHistogram: RetryHistogram?
+        get() = levels[0].retryHistogram
+        set(value) {
+            levels[0].retryHistogram = value
+        }
+
     override fun addEdge(u: Int, v: Int) {
         val edge = makeEdge(u, v)
         // use random bits instead of rank to avoid the ABA problem
@@ -57,6 +77,7 @@ class MajorDynamicConnectivity(private val size: Int) : DynamicConnectivity {
         if (!levels[0].connectedSimple(u, v)) {
             states.put(edge, makeState(SPANNING_IN_PROGRESS, 0))
             levels[0].addEdge(u, v)
+            forestListener?.onLink(edge)
             states.put(edge, makeState(SPANNING, 0))
         } else {
             val uNode = levels[0].node(u)
@@ -174,6 +195,7 @@ class MajorDynamicConnectivity(private val size: Int) : DynamicConnectivity {
             return
         }
         val rank = state.rank()
+        var forestReplacement = NO_EDGE
         for (r in rank downTo 0) {
             // remove edge, but keep the parent link
             var (uRoot, vRoot) = levels[r].removeEdge(u, v, false)
@@ -217,11 +239,12 @@ class MajorDynamicConnectivity(private val size: Int) : DynamicConnectivity {
                         levels[i].addEdge(replacementEdge.u(), replacementEdge.v(), i == r, lr)
                     }
                     commonRoot.removeEdgeOperation = null
+                    forestReplacement = replacementEdge
                     break
                 } else {
                     // linearization point, do an actual split on this level
-                    uRoot.version.inc()
-                    vRoot.version.inc()
+                    uRoot.version++
+                    vRoot.version++
                     lowerRoot.parent = null
                 }
                 commonRoot.removeEdgeOperation = null
@@ -244,6 +267,7 @@ class MajorDynamicConnectivity(private val size: Int) : DynamicConnectivity {
                         }
                         levels[i].addEdge(replacementEdge.u(), replacementEdge.v(), i == r, lr)
                     }
+                    forestReplacement = replacementEdge
                     break
                 } else {
                     // do an actual split on this level
@@ -251,10 +275,235 @@ class MajorDynamicConnectivity(private val size: Int) : DynamicConnectivity {
                 }
             }
         }
+        forestListener?.let {
+            if (forestReplacement == NO_EDGE)
+                it.onCut(edge)
+            else
+                it.onReplace(edge, forestReplacement)
+        }
         states.removeIf(edge)
     }
 
-    override fun connected(u: Int, v: Int) = levels[0].connected(u, v)
+    override fun connected(u: Int, v: Int): Boolean {
+        levels[0].tryConnected(u, v, connectedTries)?.let { return it }
+        // the components change too often, lock them so that the reader does not starve
+        var result = false
+        withLockedComponents(u, v) {
+            result = levels[0].connectedSimple(u, v)
+        }
+        return result
+    }
+
+    /**
+     * Writes all edges with their states to [path], must not run concurrently with updates.
+     * The levels are not written, since the forest of level i consists of the spanning edges of rank at least i
+     * and a non-spanning edge of rank r is stored at level r, [restore] rebuilds them from the states.
+     */
+    fun checkpoint(path: String) = writeCheckpoint(path, size, states)
+
+    // fills the levels and the states of a new instance in parallel
+    private fun restore(edges: LongArray, edgeStates: IntArray) {
+        val pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
+        try {
+            // the lower levels are larger, so they are started first
+            val tasks = levels.indices.map { level ->
+                pool.submit { levels[level].restore(level, edges, edgeStates) }
+            } + (edges.indices step RESTORE_CHUNK).map { from ->
+                pool.submit {
+                    for (i in from until minOf(from + RESTORE_CHUNK, edges.size))
+                        states.put(edges[i], edgeStates[i])
+                }
+            }
+            tasks.forEach { it.get() }
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+    companion object {
+        private const val RESTORE_CHUNK = 1 shl 20
+        private const val EXPORT_CHUNK = 1 shl 16
+
+        /**
+         * Restores an instance written by [checkpoint] without replaying the updates.
+         */
+        fun restore(path: String, rootHints: Boolean = false): MajorDynamicConnectivity {
+            val checkpoint = readCheckpoint(path)
+            val dc = MajorDynamicConnectivity(checkpoint.size, null, rootHints)
+            dc.restore(checkpoint.edges, checkpoint.states)
+            return dc
+        }
+
+        // the edges of a checkpoint without building an instance
+        fun checkpointEdges(path: String): LongArray = readCheckpoint(path).edges
+
+        /**
+         * Builds an instance with the graph of [edges] (packed by [makeEdge], distinct) without running the updates,
+         * all edges get rank 0 and a spanning forest is chosen by union-find.
+         */
+        fun bulkLoad(size: Int, edges: LongArray, rootHints: Boolean = false): MajorDynamicConnectivity {
+            val parent = IntArray(size) { it }
+            fun find(u: Int): Int {
+                var x = u
+                while (parent[x] != x) {
+                    parent[x] = parent[parent[x]]
+                    x = parent[x]
+                }
+                return x
+            }
+            val edgeStates = IntArray(edges.size) { i ->
+                val ru = find(edges[i].u())
+                val rv = find(edges[i].v())
+                if (ru != rv) {
+                    parent[ru] = rv
+                    makeState(SPANNING, 0)
+                } else {
+                    makeState(NON_SPANNING, 0)
+                }
+            }
+            val dc = MajorDynamicConnectivity(size, null, rootHints)
+            dc.restore(edges, edgeStates)
+            return dc
+        }
+    }
+
+    /**
+     * Writes the label of the component of each vertex to [out], the label is a vertex of the component.
+     * Every component is labeled under its lock, so with concurrent updates each label was valid
+     * at some moment during the call, and without them the labels are exact.
+     */
+    fun exportLabels(out: IntArray) {
+        require(out.size >= size) { "The array is smaller than the graph" }
+        out.fill(-1, 0, size)
+        val level = levels[0]
+        val vertices = level.verticesByPriority()
+        val parallelism = Runtime.getRuntime().availableProcessors()
+        // the workers take the locks, the fork-join pool only walks the locked trees
+        val pool = Executors.newFixedThreadPool(parallelism)
+        val forkJoinPool = ForkJoinPool(parallelism)
+        try {
+            (0 until size step EXPORT_CHUNK).map { from ->
+                pool.submit {
+                    for (v in from until minOf(from + EXPORT_CHUNK, size)) {
+                        val node = level.node(v)
+                        if (node.parent != null) continue
+                        node.lock!!.withLock {
+                            if (node.parent == null && out[v] == -1) level.labelTree(node, vertices, out, forkJoinPool)
+                        }
+                    }
+                }
+            }.forEach { it.get() }
+            // the vertices of the components that were merged into already labeled ones
+            for (v in 0 until size) {
+                if (out[v] != -1) continue
+                withLockedComponents(v, v) {
+                    level.labelTree(root(v), vertices, out, forkJoinPool)
+                }
+            }
+        } finally {
+            pool.shutdown()
+            forkJoinPool.shutdown()
+        }
+    }
+
+    /**
+     * Returns the edges of the spanning forest (packed by [makeEdge]).
+     * The spanning edges found by a parallel scan of the states are checked under the lock of their component,
+     * and a vertex is covered by one tree only, so with concurrent updates the result is still a forest
+     * whose every tree was a part of a spanning tree at some moment during the call, and without them the forest is exact.
+     */
+    fun exportSpanningForest(): LongArray {
+        val labels = IntArray(size)
+        exportLabels(labels)
+        val slots = states.keySlots()
+        val pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
+        try {
+            val candidates = (slots.indices step EXPORT_CHUNK).map { from ->
+                pool.submit(Callable {
+                    val found = LongArrayList()
+                    for (i in from until minOf(from + EXPORT_CHUNK, slots.size)) {
+                        val edge = slots[i]
+                        if (edge != 0L && states[edge]?.status() == SPANNING) found.add(edge)
+                    }
+                    found
+                })
+            }.map { it.get() }
+
+            // group the candidates by the label of the component
+            val groupStart = IntArray(size + 1)
+            for (found in candidates)
+                for (i in 0 until found.size) groupStart[labels[found.getLong(i).u()] + 1]++
+            for (label in 0 until size) groupStart[label + 1] += groupStart[label]
+            val position = groupStart.copyOf()
+            val grouped = LongArray(groupStart[size])
+            for (found in candidates)
+                for (i in 0 until found.size) {
+                    val edge = found.getLong(i)
+                    grouped[position[labels[edge.u()]]++] = edge
+                }
+
+            // the label of the tree covering each vertex, the components changed during the call may overlap
+            val owner = IntArray(size) { -1 }
+            return (0 until size step EXPORT_CHUNK).map { from ->
+                pool.submit(Callable {
+                    val forest = LongArrayList()
+                    for (label in from until minOf(from + EXPORT_CHUNK, size)) {
+                        if (groupStart[label] == groupStart[label + 1]) continue
+                        withLockedComponents(label, label) {
+                            val componentRoot = root(label)
+                            for (i in groupStart[label] until groupStart[label + 1]) {
+                                val edge = grouped[i]
+                                val u = edge.u()
+                                val v = edge.v()
+                                if (states[edge]?.status() != SPANNING || root(u) !== componentRoot || root(v) !== componentRoot) continue
+                                if ((owner[u] != -1 && owner[u] != label) || (owner[v] != -1 && owner[v] != label)) continue
+                                owner[u] = label
+                                owner[v] = label
+                                forest.add(edge)
+                            }
+                        }
+                    }
+                    forest
+                })
+            }.map { it.get() }.let { forests ->
+                val result = LongArrayList(forests.sumBy { it.size })
+                forests.forEach { result.addAll(it) }
+                result.toLongArray()
+            }
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+    /**
+     * Answers [connected] for all [pairs] (packed by [makeEdge]) atomically.
+     * Falls back to locking all involved components if optimistic attempts keep failing.
+     */
+    fun connectedSnapshot(pairs: LongArray): BooleanArray {
+        val result = BooleanArray(pairs.size)
+        val level = levels[0]
+        if (level.connectedSnapshot(pairs, result, snapshotTries)) return result
+
+        val roots = arrayOfNulls<Node>(2 * pairs.size)
+        while (true) {
+            for (i in pairs.indices) {
+                roots[2 * i] = root(pairs[i].u())
+                roots[2 * i + 1] = root(pairs[i].v())
+            }
+            // lock components in the order of priorities to avoid deadlock
+            val lockOrder = roots.filterNotNull().distinct().sortedBy { it.priority }
+            val success = withLockedRoots(lockOrder) {
+                for (i in pairs.indices) {
+                    if (roots[2 * i] !== root(pairs[i].u()) || roots[2 * i + 1] !== root(pairs[i].v()))
+                        return@withLockedRoots false
+                }
+                for (i in pairs.indices)
+                    result[i] = roots[2 * i] === roots[2 * i + 1]
+                true
+            }
+            if (success) return result
+        }
+    }
 
     private fun increaseTreeEdgesRank(node: Node, u: Int, v: Int, rank: Int) {
         if (!node.hasCurrentLevelTreeEdges) return
@@ -544,15 +793,15 @@ class MajorDynamicConnectivity(private val size: Int) : DynamicConnectivity {
                 vRoot = tmpNode
             }
             if (uRoot === vRoot) {
-                synchronized(uRoot) {
+                uRoot.lock!!.withLock {
                     if (uRoot.parent == null && vRoot.parent == null && uRoot == root(u) && vRoot == root(v)) {
                         body()
                         return
                     }
                 }
             } else {
-                synchronized(uRoot) {
-                    synchronized(vRoot) {
+                uRoot.lock!!.withLock {
+                    vRoot.lock!!.withLock {
                         if (uRoot.parent == null && vRoot.parent == null && uRoot == root(u) && vRoot == root(v)) {
                             body()
                             return
@@ -563,6 +812,21 @@ class MajorDynamicConnectivity(private val size: Int) : DynamicConnectivity {
         }
     }
 
+    // locks the roots one after another instead of nesting, so that any number of roots fits the stack
+    private inline fun withLockedRoots(roots: List<Node>, body: () -> Boolean): Boolean {
+        var locked = 0
+        try {
+            for (root in roots) {
+                root.lock!!.lock()
+                locked++
+            }
+            return body()
+        } finally {
+            for (i in locked - 1 downTo 0)
+                roots[i].lock!!.unlock()
+        }
+    }
+
     private inline fun removeInfo(uNode: Node, vNode: Node, edge: Long) {
         uNode.nonTreeEdges!!.remove(edge)
         vNode.nonTreeEdges!!.remove(edge)
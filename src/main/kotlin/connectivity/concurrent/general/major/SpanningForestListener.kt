@@ -0,0 +1,14 @@
+package connectivity.concurrent.general.major
+
+import connectivity.Edge
+
+/**
+ * Observes changes of the level 0 spanning forest of [MajorDynamicConnectivity].
+ * Callbacks are invoked under the locks of the affected components.
+ */
+interface SpanningForestListener {
+    fun onLink(edge: Edge)
+    fun onCut(edge: Edge)
+    // [removed] left the forest, [replacement] joined the same components again
+    fun onReplace(removed: Edge, replacement: Edge)
+}
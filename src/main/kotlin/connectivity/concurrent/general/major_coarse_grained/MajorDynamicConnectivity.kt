@@ -7,10 +7,21 @@ import connectivity.concurrent.general.major_coarse_grained.recalculateTreeEdges
 import connectivity.concurrent.general.major_coarse_grained.updateNonTreeEdges
 import connectivity.sequential.general.DynamicConnectivity
 import java.lang.IllegalStateException
-
-class MajorCoarseGrainedDynamicConnectivity(private val size: Int) : DynamicConnectivity {
+import java.util.concurrent.locks.StampedLock
+
+/**
+ * With [optimistic] spanning updates take a [StampedLock] instead of the monitor
+ * and waiting for them checks the lock optimistically, which replaces hardware lock elision.
+ * [forestListener] is called under the global lock.
+ */
+class MajorCoarseGrainedDynamicConnectivity(
+    private val size: Int,
+    optimistic: Boolean = false,
+    private val forestListener: SpanningForestListener? = null
+) : DynamicConnectivity {
     private val levels: Array<MajorConcurrentEulerTourTree>
     private val states = ConcurrentEdgeMap<EdgeState>()
+    private val lock: StampedLock? = if (optimistic) StampedLock() else null
 
     init {
         var levelNumber = 1
@@ -53,18 +64,26 @@ class MajorCoarseGrainedDynamicConnectivity(private val size: Int) : DynamicConn
         }
     }
 
-    @Synchronized
+    // waits for the spanning edge addition that holds the lock
     fun synchronize() {
-
+        if (lock == null) {
+            synchronized(this) {}
+            return
+        }
+        // the lock is free, so the observed addition has already finished
+        if (lock.tryOptimisticRead() != 0L) return
+        lock.unlockRead(lock.readLock())
     }
 
-    @Synchronized
-    fun doAddEdge(u: Int, v: Int, initialState: Int) { // under lock
+    fun doAddEdge(u: Int, v: Int, initialState: Int) = exclusively { doAddEdgeUnderLock(u, v, initialState) }
+
+    private fun doAddEdgeUnderLock(u: Int, v: Int, initialState: Int) {
         val edge = makeEdge(u, v)
         if (states[edge] ?: -1 != initialState) return
         if (!levels[0].connectedSimple(u, v)) {
             states.put(edge, makeState(SPANNING_IN_PROGRESS, 0))
             levels[0].addEdge(u, v)
+            forestListener?.onLink(edge)
             states.put(edge, makeState(SPANNING, 0))
         } else {
             val uNode = levels[0].node(u)
@@ -168,8 +187,9 @@ class MajorCoarseGrainedDynamicConnectivity(private val size: Int) : DynamicConn
         return false
     }
 
-    @Synchronized
-    private fun doRemoveEdge(u: Int, v: Int) {
+    private fun doRemoveEdge(u: Int, v: Int) = exclusively { doRemoveEdgeUnderLock(u, v) }
+
+    private fun doRemoveEdgeUnderLock(u: Int, v: Int) {
         val edge = makeEdge(u, v)
         val state = states[edge] ?: return
         if (state.status() == INITIAL) return
@@ -178,6 +198,7 @@ class MajorCoarseGrainedDynamicConnectivity(private val size: Int) : DynamicConn
             return
         }
         val rank = state.rank()
+        var forestReplacement = NO_EDGE
         for (r in rank downTo 0) {
             // remove edge, but keep the parent link
             var (uRoot, vRoot) = levels[r].removeEdge(u, v, false)
@@ -223,6 +244,7 @@ class MajorCoarseGrainedDynamicConnectivity(private val size: Int) : DynamicConn
                         levels[i].addEdge(replacementEdge.u(), replacementEdge.v(), i == r, lr)
                     }
                     commonRoot.removeEdgeOperation = null
+                    forestReplacement = replacementEdge
                     break
                 } else {
                     // linearization point, do an actual split on this level
@@ -251,6 +273,7 @@ class MajorCoarseGrainedDynamicConnectivity(private val size: Int) : DynamicConn
                         }
                         levels[i].addEdge(replacementEdge.u(), replacementEdge.v(), i == r, lr)
                     }
+                    forestReplacement = replacementEdge
                     break
                 } else {
                     // do an actual split on this level
@@ -259,6 +282,12 @@ class MajorCoarseGrainedDynamicConnectivity(private val size: Int) : DynamicConn
                 }
             }
         }
+        forestListener?.let {
+            if (forestReplacement == NO_EDGE)
+                it.onCut(edge)
+            else
+                it.onReplace(edge, forestReplacement)
+        }
         states.removeIf(edge)
     }
 
@@ -533,6 +562,19 @@ class MajorCoarseGrainedDynamicConnectivity(private val size: Int) : DynamicConn
 
     private fun root(u: Int): Node = levels[0].root(u)
 
+    private inline fun exclusively(body: () -> Unit) {
+        if (lock == null) {
+            synchronized(this, body)
+            return
+        }
+        val stamp = lock.writeLock()
+        try {
+            body()
+        } finally {
+            lock.unlockWrite(stamp)
+        }
+    }
+
     private inline fun removeInfo(uNode: Node, vNode: Node, edge: Long) {
         uNode.nonTreeEdges!!.remove(edge)
         vNode.nonTreeEdges!!.remove(edge)
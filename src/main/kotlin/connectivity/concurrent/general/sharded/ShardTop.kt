@@ -0,0 +1,89 @@
+package connectivity.concurrent.general.sharded
+
+import connectivity.*
+import connectivity.concurrent.general.major.MajorDynamicConnectivity
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * The top level of [ShardedDynamicConnectivity]: a node per shard component and the inter-shard edges between them.
+ * Several inter-shard edges between two shard components are kept as one top edge with a counter.
+ *
+ * A shard merging or splitting its components moves the vertices of the smaller part to another node
+ * under [lock], while a glue edge between the two nodes keeps the top level connectivity unchanged.
+ * So the top level changes only when the glue edge is added or removed, which is the linearization point
+ * for the queries of other shards. The queries of the changed shard are validated by its lock.
+ */
+class ShardTop(size: Int) {
+    private val top = MajorDynamicConnectivity(size)
+    // guards the nodes of vertices, the inter-shard edges and the edge counters
+    val lock = ReentrantLock()
+    // the top node of the shard component of each vertex, changes under the lock of its shard and [lock]
+    private val nodes = IntArray(size) { it }
+    // the nodes of the split parts are taken from here, there are never more components than vertices
+    private val freeNodes = IntArray(size)
+    private var freeCount = 0
+    private val interShardEdges = arrayOfNulls<SequentialEdgeSet>(size)
+    private val topEdges = SequentialEdgeMap<Int>()
+
+    fun node(v: Int) = nodes[v]
+
+    fun connected(u: Int, v: Int) = top.connected(nodes[u], nodes[v])
+
+    fun addInterShardEdge(u: Int, v: Int) {
+        val edge = makeEdge(u, v)
+        lock.withLock {
+            val uEdges = interShardEdges[u] ?: SequentialEdgeSet(INITIAL_SIZE).also { interShardEdges[u] = it }
+            if (!uEdges.add(edge)) return
+            (interShardEdges[v] ?: SequentialEdgeSet(INITIAL_SIZE).also { interShardEdges[v] = it }).add(edge)
+            link(nodes[u], nodes[v])
+        }
+    }
+
+    fun removeInterShardEdge(u: Int, v: Int) {
+        val edge = makeEdge(u, v)
+        lock.withLock {
+            if (interShardEdges[u]?.remove(edge) != true) return
+            interShardEdges[v]!!.remove(edge)
+            cut(nodes[u], nodes[v])
+        }
+    }
+
+    // the following is called under [lock]
+
+    fun allocateNode(): Int = freeNodes[--freeCount]
+
+    fun freeNode(node: Int) {
+        freeNodes[freeCount++] = node
+    }
+
+    // adds a top edge, or a copy of it
+    fun link(a: Int, b: Int) {
+        val edge = makeEdge(a, b)
+        val count = topEdges[edge] ?: 0
+        topEdges[edge] = count + 1
+        if (count == 0) top.addEdge(a, b)
+    }
+
+    fun cut(a: Int, b: Int) {
+        val edge = makeEdge(a, b)
+        val count = topEdges[edge]!!
+        if (count == 1) {
+            topEdges.remove(edge)
+            top.removeEdge(a, b)
+        } else {
+            topEdges[edge] = count - 1
+        }
+    }
+
+    // moves v with its inter-shard edges to the top node [to], the old and the new node must be glued
+    fun move(v: Int, to: Int) {
+        val from = nodes[v]
+        nodes[v] = to
+        interShardEdges[v]?.forEach { edge ->
+            val other = nodes[if (edge.u() == v) edge.v() else edge.u()]
+            link(to, other)
+            cut(from, other)
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package connectivity.concurrent.general.sharded
+
+import connectivity.*
+import connectivity.sequential.general.BatchedDynamicConnectivity
+import connectivity.sequential.general.DynamicConnectivity
+import connectivity.sequential.general.SequentialDynamicConnectivity
+import java.util.concurrent.locks.StampedLock
+import kotlin.concurrent.withLock
+import kotlin.math.max
+import kotlin.math.min
+
+enum class ShardPartitioning {
+    HASH, // vertex v goes to the shard v mod shards
+    RANGE // shards own contiguous ranges of vertices
+}
+
+/**
+ * Vertices are partitioned into [shardCount] shards, each shard keeps a sequential instance for intra-shard edges
+ * guarded by its own lock. The top level has a node per shard component and the inter-shard edges, see [ShardTop],
+ * so it is updated only by inter-shard edges and by the shard updates that merge or split components.
+ * Queries run optimistically on the shards of their vertices and the top level, and are validated by the shard locks.
+ */
+class ShardedDynamicConnectivity(
+    private val size: Int,
+    private val shardCount: Int,
+    private val partitioning: ShardPartitioning = ShardPartitioning.HASH
+) : DynamicConnectivity {
+    private val top = ShardTop(size)
+    private val rangeSize = (size + shardCount - 1) / shardCount
+    val shards = Array(shardCount) { Shard(it) }
+
+    override fun addEdge(u: Int, v: Int) {
+        val uShard = shard(u)
+        if (uShard == shard(v))
+            shards[uShard].update(true, local(u), local(v))
+        else
+            top.addInterShardEdge(u, v)
+    }
+
+    override fun removeEdge(u: Int, v: Int) {
+        val uShard = shard(u)
+        if (uShard == shard(v))
+            shards[uShard].update(false, local(u), local(v))
+        else
+            top.removeInterShardEdge(u, v)
+    }
+
+    override fun connected(u: Int, v: Int): Boolean {
+        val uShard = shards[shard(u)]
+        val vShard = shards[shard(v)]
+        val uStamp = uShard.lock.tryOptimisticRead()
+        val vStamp = vShard.lock.tryOptimisticRead()
+        if (uStamp != 0L && vStamp != 0L) {
+            val shardResult = if (uShard === vShard) uShard.tryConnected(local(u), local(v)) else false
+            if (shardResult != null) {
+                val result = shardResult || top.connected(u, v)
+                if (uShard.lock.validate(uStamp) && vShard.lock.validate(vStamp)) return result
+            }
+        }
+        // a concurrent update of the shards, retry under their read locks taken in order
+        val first = if (uShard.index <= vShard.index) uShard else vShard
+        val second = if (first === uShard) vShard else uShard
+        val firstStamp = first.lock.readLock()
+        val secondStamp = if (second !== first) second.lock.readLock() else 0L
+        try {
+            return uShard === vShard && uShard.connected(local(u), local(v)) || top.connected(u, v)
+        } finally {
+            if (second !== first) second.lock.unlockRead(secondStamp)
+            first.lock.unlockRead(firstStamp)
+        }
+    }
+
+    fun shard(v: Int) = when (partitioning) {
+        ShardPartitioning.HASH -> v % shardCount
+        ShardPartitioning.RANGE -> v / rangeSize
+    }
+
+    fun local(v: Int) = when (partitioning) {
+        ShardPartitioning.HASH -> v / shardCount
+        ShardPartitioning.RANGE -> v % rangeSize
+    }
+
+    private fun global(shard: Int, v: Int) = when (partitioning) {
+        ShardPartitioning.HASH -> v * shardCount + shard
+        ShardPartitioning.RANGE -> shard * rangeSize + v
+    }
+
+    private fun shardSize(shard: Int) = max(1, when (partitioning) {
+        ShardPartitioning.HASH -> (size - shard + shardCount - 1) / shardCount
+        ShardPartitioning.RANGE -> min(rangeSize, size - shard * rangeSize)
+    })
+
+    /**
+     * The intra-shard edges in local indices. The updates are applied under the write [lock],
+     * either one by one by [update] or in batches by a flat combining engine, and keep the top level in sync.
+     */
+    inner class Shard(val index: Int) : BatchedDynamicConnectivity {
+        val lock = StampedLock()
+        private val connectivity = SequentialDynamicConnectivity(shardSize(index))
+        // a tree has at most size vertex nodes and two nodes per edge, so no valid walk to the root is longer
+        private val maxWalk = 3 * shardSize(index)
+        private val removal = LongArray(1)
+        private var cuts = LongArray(1)
+
+        fun update(isAddition: Boolean, u: Int, v: Int) {
+            val stamp = lock.writeLock()
+            try {
+                if (isAddition)
+                    addEdge(u, v)
+                else
+                    removeEdge(u, v)
+            } finally {
+                lock.unlockWrite(stamp)
+            }
+        }
+
+        // a torn read may see a cycle of parent links, returns null then
+        fun tryConnected(u: Int, v: Int) = connectivity.tryConnected(u, v, maxWalk)
+
+        override fun connected(u: Int, v: Int) = connectivity.connected(u, v)
+
+        override fun containsEdge(u: Int, v: Int) = connectivity.containsEdge(u, v)
+
+        override fun isTreeEdge(u: Int, v: Int) = connectivity.isTreeEdge(u, v)
+
+        override fun addEdge(u: Int, v: Int) {
+            if (connectivity.connected(u, v)) {
+                connectivity.addEdge(u, v)
+                return
+            }
+            // the smaller component moves to the top node of the larger one
+            val from = if (connectivity.componentSize(u) <= connectivity.componentSize(v)) u else v
+            val to = if (from == u) v else u
+            top.lock.withLock {
+                val fromNode = top.node(global(index, from))
+                val toNode = top.node(global(index, to))
+                top.link(fromNode, toNode)
+                connectivity.forEachVertex(from) { top.move(global(index, it), toNode) }
+                top.cut(fromNode, toNode)
+                top.freeNode(fromNode)
+            }
+            connectivity.addEdge(u, v)
+        }
+
+        override fun removeEdge(u: Int, v: Int) {
+            removal[0] = makeEdge(u, v)
+            removeEdges(removal, 1)
+        }
+
+        override fun removeEdges(edges: LongArray, count: Int) {
+            if (cuts.size < count)
+                cuts = LongArray(count)
+            var cutCount = 0
+            for (k in 0 until count) {
+                if (connectivity.isTreeEdge(edges[k].u(), edges[k].v()))
+                    cuts[cutCount++] = edges[k]
+            }
+            connectivity.removeEdges(edges, count)
+            if (cutCount > 0)
+                split(cutCount)
+        }
+
+        // gives new top nodes to the parts of the components split by the cuts, the largest part keeps the old one
+        private fun split(cutCount: Int) {
+            // the parts by the old top nodes, each part is given by one of its vertices, all parts end some cut edge
+            val parts = HashMap<Int, ArrayList<Int>>()
+            var disconnected = 0
+            for (k in 0 until cutCount) {
+                val u = cuts[k].u()
+                val v = cuts[k].v()
+                if (connectivity.connected(u, v)) continue
+                cuts[disconnected++] = cuts[k]
+                addPart(parts, u)
+                addPart(parts, v)
+            }
+            if (disconnected == 0) return
+
+            top.lock.withLock {
+                // pairs of the old and the new top nodes
+                val glued = ArrayList<Int>()
+                for ((node, vertices) in parts) {
+                    val largest = vertices.maxByOrNull { connectivity.componentSize(it) }
+                    for (x in vertices) {
+                        if (x == largest) continue
+                        val newNode = top.allocateNode()
+                        top.link(node, newNode)
+                        connectivity.forEachVertex(x) { top.move(global(index, it), newNode) }
+                        glued.add(node)
+                        glued.add(newNode)
+                    }
+                }
+                // replace the glue by the cut edges and remove them one by one, as if the cuts were applied in order
+                for (k in 0 until disconnected)
+                    top.link(top.node(global(index, cuts[k].u())), top.node(global(index, cuts[k].v())))
+                for (i in 0 until glued.size step 2)
+                    top.cut(glued[i], glued[i + 1])
+                for (k in 0 until disconnected)
+                    top.cut(top.node(global(index, cuts[k].u())), top.node(global(index, cuts[k].v())))
+            }
+        }
+
+        private fun addPart(parts: HashMap<Int, ArrayList<Int>>, x: Int) {
+            val vertices = parts.getOrPut(top.node(global(index, x))) { ArrayList() }
+            if (vertices.none { connectivity.connected(it, x) })
+                vertices.add(x)
+        }
+    }
+}
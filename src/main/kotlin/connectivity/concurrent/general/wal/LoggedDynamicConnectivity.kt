@@ -0,0 +1,70 @@
+package connectivity.concurrent.general.wal
+
+import connectivity.concurrent.general.major.MajorDynamicConnectivity
+import connectivity.makeEdge
+import connectivity.sequential.general.DynamicConnectivity
+import connectivity.u
+import connectivity.v
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
+
+private const val STRIPES = 1024
+
+/**
+ * Logs the updates to [log] and returns from an update only after its record is durable.
+ * Updates before a log is attached are not logged, e.g. the state restored from a checkpoint.
+ */
+class LoggedDynamicConnectivity(private val dc: DynamicConnectivity) : DynamicConnectivity {
+    @Volatile
+    var log: WriteAheadLog? = null
+
+    // the updates of an edge are applied and logged in the same order,
+    // updates of different edges commute, so the replayed log gives the same graph
+    private val stripes = Array(STRIPES) { Any() }
+
+    override fun addEdge(u: Int, v: Int) = update(true, u, v)
+
+    override fun removeEdge(u: Int, v: Int) = update(false, u, v)
+
+    override fun connected(u: Int, v: Int) = dc.connected(u, v)
+
+    private fun update(isAddition: Boolean, u: Int, v: Int) {
+        val log = log
+        if (log == null) {
+            apply(isAddition, u, v)
+            return
+        }
+        val sequenceNumber = synchronized(stripes[stripe(makeEdge(u, v))]) {
+            apply(isAddition, u, v)
+            log.append(logRecord(isAddition, u, v))
+        }
+        log.awaitDurable(sequenceNumber)
+    }
+
+    private fun apply(isAddition: Boolean, u: Int, v: Int) {
+        if (isAddition)
+            dc.addEdge(u, v)
+        else
+            dc.removeEdge(u, v)
+    }
+
+    private fun stripe(edge: Long) = ((edge * -0x61c8864680b583ebL) ushr 54).toInt() and (STRIPES - 1)
+}
+
+/**
+ * Rebuilds the graph of the checkpoint at [checkpointPath] (if any) with the updates of the log at [logPath] applied.
+ */
+fun recover(size: Int, logPath: String, checkpointPath: String? = null): MajorDynamicConnectivity {
+    val edges = LongOpenHashSet()
+    checkpointPath?.let { path ->
+        MajorDynamicConnectivity.checkpointEdges(path).forEach { edges.add(it) }
+    }
+    replayLog(logPath) { record ->
+        val edge = record.recordEdge()
+        if (edge.u() == edge.v()) return@replayLog
+        if (record.isAddition())
+            edges.add(edge)
+        else
+            edges.remove(edge)
+    }
+    return MajorDynamicConnectivity.bulkLoad(size, edges.toLongArray())
+}
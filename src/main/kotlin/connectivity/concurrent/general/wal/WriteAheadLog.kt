@@ -0,0 +1,130 @@
+package connectivity.concurrent.general.wal
+
+import connectivity.*
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import java.io.Closeable
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.locks.LockSupport
+import kotlin.concurrent.thread
+
+// a record is an edge with the addition flag, little-endian
+private const val ADDITION = 1L shl 62
+private const val READ_RECORDS = 1 shl 16
+
+fun logRecord(isAddition: Boolean, u: Int, v: Int): Long = makeEdge(u, v) or (if (isAddition) ADDITION else 0)
+fun Long.isAddition() = this and ADDITION != 0L
+fun Long.recordEdge(): Edge = this and ADDITION.inv()
+
+/**
+ * Append-only log of updates with group commit: a single flusher thread writes all records
+ * appended since the previous write and forces them to the disk with one fsync.
+ * After the first record of a group arrives, the flusher waits [commitIntervalNanos] to collect more of them,
+ * with 0 it writes as soon as the previous fsync completes.
+ */
+class WriteAheadLog(path: String, private val commitIntervalNanos: Long) : Closeable {
+    private val channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+    private val lock = Object()
+    // guarded by lock
+    private var pending = LongArrayList()
+    private var appended = 0L
+    private var closed = false
+
+    private val durableLock = Object()
+    @Volatile
+    private var durable = 0L
+    @Volatile
+    private var failure: Throwable? = null
+
+    private val flusher = thread(isDaemon = true, name = "wal-flusher") {
+        try {
+            flushLoop()
+        } catch (e: Throwable) {
+            failure = e
+            synchronized(durableLock) { durableLock.notifyAll() }
+        }
+    }
+
+    // returns the sequence number of the record for [awaitDurable]
+    fun append(record: Long): Long = synchronized(lock) {
+        check(!closed) { "The log is closed" }
+        pending.add(record)
+        if (pending.size == 1) lock.notify()
+        ++appended
+    }
+
+    fun awaitDurable(sequenceNumber: Long) {
+        if (durable >= sequenceNumber) return
+        synchronized(durableLock) {
+            while (durable < sequenceNumber) {
+                failure?.let { throw IllegalStateException("The log can not be written", it) }
+                durableLock.wait()
+            }
+        }
+    }
+
+    private fun flushLoop() {
+        var spare = LongArrayList()
+        var buffer = ByteBuffer.allocateDirect(8 * 1024).order(ByteOrder.LITTLE_ENDIAN)
+        while (true) {
+            synchronized(lock) {
+                while (pending.isEmpty && !closed) lock.wait()
+                if (pending.isEmpty) return
+            }
+            if (commitIntervalNanos > 0) LockSupport.parkNanos(commitIntervalNanos)
+
+            val group: LongArrayList
+            val sequenceNumber: Long
+            synchronized(lock) {
+                group = pending
+                pending = spare
+                sequenceNumber = appended
+            }
+            if (buffer.capacity() < 8 * group.size)
+                buffer = ByteBuffer.allocateDirect(8 * Integer.highestOneBit(2 * group.size)).order(ByteOrder.LITTLE_ENDIAN)
+            buffer.clear()
+            for (i in 0 until group.size)
+                buffer.putLong(group.getLong(i))
+            buffer.flip()
+            while (buffer.hasRemaining()) channel.write(buffer)
+            channel.force(false)
+
+            group.clear()
+            spare = group
+            synchronized(durableLock) {
+                durable = sequenceNumber
+                durableLock.notifyAll()
+            }
+        }
+    }
+
+    // writes the remaining records
+    override fun close() {
+        synchronized(lock) {
+            closed = true
+            lock.notify()
+        }
+        flusher.join()
+        channel.close()
+    }
+}
+
+/**
+ * Calls [apply] for the records of the log at [path] in order, a partially written last record is ignored.
+ */
+fun replayLog(path: String, apply: (record: Long) -> Unit) {
+    FileChannel.open(Paths.get(path), StandardOpenOption.READ).use { channel ->
+        val buffer = ByteBuffer.allocateDirect(8 * READ_RECORDS).order(ByteOrder.LITTLE_ENDIAN)
+        while (true) {
+            val read = channel.read(buffer)
+            buffer.flip()
+            while (buffer.remaining() >= 8)
+                apply(buffer.long)
+            buffer.compact()
+            if (read < 0) break
+        }
+    }
+}
@@ -2,6 +2,7 @@ package connectivity.concurrent.tree
 
 import connectivity.*
 import connectivity.NO_EDGE
+import connectivity.concurrent.RetryHistogram
 import connectivity.concurrent.tree.recalculateNonTreeEdges
 import connectivity.concurrent.tree.recalculateSize
 import connectivity.concurrent.tree.recalculateTreeEdges
@@ -27,6 +28,7 @@ class ConcurrentETTNode(@JvmField val priority: Int, isVertex: Boolean = true, t
 class ConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
     private val nodes: Array<ConcurrentETTNode>
     private val edgeToNode = SequentialEdgeMap<ConcurrentETTNode>(size)
+    var retryHistogram: RetryHistogram? = null
 
     init {
         // priorities for vertices are numbers in [0, size)
@@ -50,10 +52,10 @@ class ConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
 
         // linearization point
         if (uRoot.priority < vRoot.priority) {
-            uRoot.version.inc()
+            uRoot.version++
             vRoot.parent = uRoot
         } else {
-            vRoot.version.inc()
+            vRoot.version++
             uRoot.parent = vRoot
         }
 
@@ -110,8 +112,8 @@ class ConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
         if (doSplit) {
             // linearization point
             // one of them was already null and the other lead to another tree
-            component1.version.inc()
-            component2.version.inc()
+            component1.version++
+            component2.version++
             component1.parent = null
             component2.parent = null
         }
@@ -123,8 +125,14 @@ class ConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
         return Pair(component1, component2)
     }
 
-    override fun connected(u: Int, v: Int): Boolean {
-        while (true) {
+    // retries until the roots are validated
+    override fun connected(u: Int, v: Int): Boolean = tryConnected(u, v, Int.MAX_VALUE)!!
+
+    /**
+     * Lock-free [connected] that gives up after [tries] unsuccessful attempts and returns null then.
+     */
+    fun tryConnected(u: Int, v: Int, tries: Int): Boolean? {
+        for (attempt in 0 until tries) {
             val uRoot = root(u)
             val uRootVersion = uRoot.version
             val vRoot = root(v)
@@ -134,8 +142,11 @@ class ConcurrentEulerTourTree(val size: Int) : TreeDynamicConnectivity {
                 if (!rereadRoot(v, vRoot, vRootVersion)) continue
                 if (!checkRoot(uRoot, uRootVersion)) continue
             }
+            retryHistogram?.record(attempt)
             return uRoot === vRoot
         }
+        retryHistogram?.recordFallback()
+        return null
     }
 
     // simple sequential connectivity check
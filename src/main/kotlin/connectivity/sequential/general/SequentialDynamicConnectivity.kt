@@ -3,6 +3,7 @@ package connectivity.sequential.general
 import connectivity.*
 import connectivity.NO_EDGE
 import connectivity.sequential.tree.*
+import java.util.*
 import kotlin.math.min
 
 interface DynamicConnectivity {
@@ -11,7 +12,19 @@ interface DynamicConnectivity {
     fun connected(u: Int, v: Int): Boolean
 }
 
-class SequentialDynamicConnectivity (private val size: Int) : DynamicConnectivity {
+// the edge state needed to reorder a batch of updates, is used by the combiner only
+interface BatchedDynamicConnectivity : DynamicConnectivity {
+    fun containsEdge(u: Int, v: Int): Boolean
+    fun isTreeEdge(u: Int, v: Int): Boolean
+
+    // removes the first count edges, the implementations may share the replacement searches between them
+    fun removeEdges(edges: LongArray, count: Int) {
+        for (k in 0 until count)
+            removeEdge(edges[k].u(), edges[k].v())
+    }
+}
+
+class SequentialDynamicConnectivity (private val size: Int) : BatchedDynamicConnectivity {
     private val levels: Array<SequentialEulerTourTree>
     private val ranks = SequentialEdgeMap<Int>()
 
@@ -94,8 +107,130 @@ class SequentialDynamicConnectivity (private val size: Int) : DynamicConnectivit
 
     }
 
+    /**
+     * Cuts all the tree edges first and then looks for the replacements level by level, from the highest rank.
+     * On each level, the parts of every cut component are searched smallest first, as the smaller part in [removeEdge],
+     * until at most one of them may still have edges of this rank leaving it. So a part left by several cuts
+     * is searched once rather than once per cut.
+     */
+    override fun removeEdges(edges: LongArray, count: Int) {
+        if (count == 1) {
+            removeEdge(edges[0].u(), edges[0].v())
+            return
+        }
+        val cutRanks = IntArray(count)
+        var maxRank = -1
+        for (k in 0 until count) {
+            val edge = edges[k]
+            val u = edge.u()
+            val v = edge.v()
+            cutRanks[k] = -1
+            if (!isTreeEdge(u, v)) {
+                removeEdge(u, v)
+                continue
+            }
+            val rank = ranks[edge]!!
+            ranks.remove(edge)
+            for (r in 0..rank)
+                levels[r].removeEdge(u, v)
+            cutRanks[k] = rank
+            maxRank = maxOf(maxRank, rank)
+        }
+        if (maxRank < 0) return
+
+        // the parts with their roots and a vertex of each, joined by the cut edges into the cut components
+        val parts = IdentityHashMap<SequentialETTNode, Int>()
+        val roots = arrayOfNulls<SequentialETTNode>(2 * count)
+        val vertices = IntArray(2 * count)
+        val groups = IntArray(2 * count)
+        fun find(part: Int): Int {
+            var p = part
+            while (groups[p] != p) {
+                groups[p] = groups[groups[p]]
+                p = groups[p]
+            }
+            return p
+        }
+        fun part(root: SequentialETTNode, x: Int) = parts.getOrPut(root) {
+            groups[parts.size] = parts.size
+            roots[parts.size] = root
+            vertices[parts.size] = x
+            parts.size
+        }
+
+        for (r in maxRank downTo 0) {
+            val level = levels[r]
+            parts.clear()
+            for (k in 0 until count) {
+                if (cutRanks[k] < r) continue
+                val u = edges[k].u()
+                val v = edges[k].v()
+                val uRoot = level.root(u)
+                val vRoot = level.root(v)
+                if (uRoot === vRoot) {
+                    // replaced on a higher level, so connected on the lower ones too
+                    cutRanks[k] = -1
+                    continue
+                }
+                groups[find(part(uRoot, u))] = find(part(vRoot, v))
+            }
+
+            for (component in (0 until parts.size).groupBy { find(it) }.values) {
+                // the parts which may have edges of this rank leaving them, a searched part either has none
+                // or is merged into another one, so the last part is left with no other part to lead to
+                val open = ArrayList(component)
+                while (open.size > 1) {
+                    var smallest = 0
+                    for (i in 1 until open.size) {
+                        if (roots[open[i]]!!.size < roots[open[smallest]]!!.size)
+                            smallest = i
+                    }
+                    val root = roots[open[smallest]]!!
+                    val x = vertices[open[smallest]]
+                    open.removeAt(smallest)
+
+                    val sample = sample(root, r, SAMPLING_TRIES)
+                    val replacementEdge = if (sample > 0) {
+                        sample
+                    } else {
+                        // at most half of the open parts, so the tree edges can be promoted
+                        increaseTreeEdgesRank(root, x, x, r)
+                        findReplacement(root, r)
+                    }
+                    if (replacementEdge == NO_EDGE) continue
+
+                    // the links do not change the roots of the other trees
+                    val otherRoot = level.root(replacementEdge.u()).takeIf { it !== root } ?: level.root(replacementEdge.v())
+                    for (i in 0..r)
+                        levels[i].addEdge(replacementEdge.u(), replacementEdge.v(), i == r)
+                    val newRoot = level.root(x)
+                    for (p in open) {
+                        if (roots[p] === otherRoot)
+                            roots[p] = newRoot
+                    }
+                }
+            }
+        }
+    }
+
     override fun connected(u: Int, v: Int) = levels[0].connected(u, v)
 
+    // see SequentialEulerTourTree.tryConnected
+    fun tryConnected(u: Int, v: Int, maxSteps: Int) = levels[0].tryConnected(u, v, maxSteps)
+
+    fun componentSize(u: Int) = levels[0].componentSize(u)
+
+    // calls action for every vertex in the component of u
+    fun forEachVertex(u: Int, action: (Int) -> Unit) = levels[0].forEachVertex(u, action)
+
+    override fun containsEdge(u: Int, v: Int) = ranks[makeEdge(u, v)] != null
+
+    override fun isTreeEdge(u: Int, v: Int): Boolean {
+        val edge = makeEdge(u, v)
+        val rank = ranks[edge] ?: return false
+        return !levels[rank].node(u).nonTreeEdges!!.contains(edge)
+    }
+
     private fun sample(node: SequentialETTNode, rank: Int, tries: Long): Long {
         if (!node.hasNonTreeEdges) return -tries
         var tries = tries
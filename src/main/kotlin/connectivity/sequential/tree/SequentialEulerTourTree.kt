@@ -14,7 +14,7 @@ interface TreeDynamicConnectivity {
     fun connected(u: Int, v: Int): Boolean
 }
 
-class SequentialETTNode(@JvmField val priority: Int, isVertex: Boolean = true, treeEdge: Edge = NO_EDGE) {
+class SequentialETTNode(@JvmField val priority: Int, isVertex: Boolean = true, treeEdge: Edge = NO_EDGE, @JvmField val vertex: Int = -1) {
     @JvmField var parent: SequentialETTNode? = null
     @JvmField var left: SequentialETTNode? = null
     @JvmField var right: SequentialETTNode? = null
@@ -33,7 +33,7 @@ class SequentialEulerTourTree(val size: Int) : TreeDynamicConnectivity {
         // priorities for vertices are numbers in [0, size)
         // priorities for edges are random numbers in [size, 11 * size)
         // priorities for nodes are less so that roots will be always vertices, not edges
-        nodes = Array(size) { SequentialETTNode(((1_000_000_007L * (it + 10)) % size).toInt()) }
+        nodes = Array(size) { SequentialETTNode(((1_000_000_007L * (it + 10)) % size).toInt(), vertex = it) }
     }
 
     override fun addEdge(u: Int, v: Int) = addEdge(u, v, true)
@@ -99,8 +99,39 @@ class SequentialEulerTourTree(val size: Int) : TreeDynamicConnectivity {
 
     fun root(u: Int): SequentialETTNode = root(nodes[u])
 
+    /**
+     * [connected] for reads racing with updates, returns null instead of following more than [maxSteps] parent links,
+     * since a torn read can see a cycle of them.
+     */
+    fun tryConnected(u: Int, v: Int, maxSteps: Int): Boolean? {
+        val uRoot = boundedRoot(nodes[u], maxSteps) ?: return null
+        val vRoot = boundedRoot(nodes[v], maxSteps) ?: return null
+        return uRoot === vRoot
+    }
+
+    private fun boundedRoot(n: SequentialETTNode, maxSteps: Int): SequentialETTNode? {
+        var node = n
+        var steps = 0
+        while (true) {
+            val parent = node.parent ?: return node
+            if (++steps > maxSteps) return null
+            node = parent
+        }
+    }
+
     fun node(u: Int): SequentialETTNode = nodes[u]
 
+    // the number of vertices in the tree of u, a tree of k vertices has 3k - 2 nodes
+    fun componentSize(u: Int) = (root(u).size + 2) / 3
+
+    fun forEachVertex(u: Int, action: (Int) -> Unit) = forEachVertex(root(u), action)
+
+    private fun forEachVertex(node: SequentialETTNode, action: (Int) -> Unit) {
+        if (node.vertex >= 0) action(node.vertex)
+        node.left?.let { forEachVertex(it, action) }
+        node.right?.let { forEachVertex(it, action) }
+    }
+
     private fun root(n: SequentialETTNode): SequentialETTNode {
         var node = n
         var parent = node.parent
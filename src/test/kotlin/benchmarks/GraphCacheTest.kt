@@ -0,0 +1,80 @@
+package benchmarks
+
+import benchmarks.util.*
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+
+class GraphCacheTest {
+    private val key = graphCacheKey("RANDOM", "rand", "1000 5000")
+
+    @Test
+    fun roundTrip() {
+        val file = File.createTempFile("graph", ".bin")
+        try {
+            for (graph in listOf(Graph(1, LongArray(0)), randomGraph(1000, 5000))) {
+                writeGraphCache(file.path, graph, key)
+                val loaded = loadGraphCache(file.path, key)!!
+                assertEquals(graph.nodes, loaded.nodes)
+                assertArrayEquals(graph.edges(0, graph.edgeCount), loaded.edges(0, loaded.edgeCount))
+            }
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test
+    fun mapped() {
+        val file = File.createTempFile("graph", ".bin")
+        try {
+            val graph = randomGraph(1000, 5000)
+            writeGraphCache(file.path, graph, key)
+            val mapped = mapGraphCache(file.path, key, verify = true)!!
+            assertEquals(graph.nodes, mapped.nodes)
+            assertEquals(graph.edgeCount, mapped.edgeCount)
+            for (i in 0 until graph.edgeCount)
+                assertEquals(graph.edge(i), mapped.edge(i))
+            assertArrayEquals(graph.edges(100, 200), mapped.edges(100, 200))
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test
+    fun corrupted() {
+        val file = File.createTempFile("graph", ".bin")
+        try {
+            writeGraphCache(file.path, randomGraph(100, 300), key)
+            RandomAccessFile(file, "rw").use {
+                it.seek(it.length() - 3)
+                val b = it.read()
+                it.seek(it.length() - 3)
+                it.write(b xor 1)
+            }
+            assertNull(loadGraphCache(file.path, key))
+            assertNull(mapGraphCache(file.path, key, verify = true))
+
+            RandomAccessFile(file, "rw").use { it.setLength(it.length() - 8) }
+            assertNull(loadGraphCache(file.path, key))
+        } finally {
+            file.delete()
+        }
+        assertNull(loadGraphCache(file.path, key))
+    }
+
+    @Test
+    fun otherSource() {
+        val file = File.createTempFile("graph", ".bin")
+        try {
+            writeGraphCache(file.path, randomGraph(100, 300), key)
+            val otherKey = graphCacheKey("RANDOM", "rand", "1000 6000")
+            assertNotEquals(key, otherKey)
+            assertNull(loadGraphCache(file.path, otherKey))
+            assertNull(mapGraphCache(file.path, otherKey))
+            assertNotNull(mapGraphCache(file.path, key))
+        } finally {
+            file.delete()
+        }
+    }
+}
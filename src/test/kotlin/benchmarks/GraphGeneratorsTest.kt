@@ -0,0 +1,47 @@
+package benchmarks
+
+import benchmarks.util.*
+import org.junit.Assert.*
+import org.junit.Test
+
+class GraphGeneratorsTest {
+    @Test
+    fun rmat() {
+        val graph = rmatGraph(10, 16)
+        assertEquals(1024, graph.nodes)
+        checkEdges(graph)
+        assertArrayEquals(graph.allEdges(), rmatGraph(10, 16).allEdges())
+        assertFalse(graph.allEdges().contentEquals(rmatGraph(10, 16, seed = 1).allEdges()))
+    }
+
+    @Test
+    fun erdosRenyi() {
+        // more edges than in a block
+        val graph = erdosRenyiGraph(1000, 3_000_000)
+        assertEquals(3_000_000, graph.edgeCount)
+        checkEdges(graph)
+        assertArrayEquals(graph.allEdges(), erdosRenyiGraph(1000, 3_000_000).allEdges())
+    }
+
+    @Test
+    fun grid() {
+        val width = 300
+        val graph = gridGraph(width, 200, 0.6)
+        assertEquals(width * 200, graph.nodes)
+        checkEdges(graph)
+        for (edge in graph.allEdges())
+            assertTrue(edge.to() - edge.from() == 1 || edge.to() - edge.from() == width)
+        assertEquals(2 * width * 200 * 0.6, graph.edgeCount.toDouble(), 1000.0)
+        assertEquals(2 * width * 200 - width - 200, gridGraph(width, 200, 1.0).edgeCount)
+    }
+
+    private fun checkEdges(graph: Graph) {
+        for (edge in graph.allEdges()) {
+            assertTrue(edge.from() in 0 until graph.nodes)
+            assertTrue(edge.to() in 0 until graph.nodes)
+            assertTrue(edge.from() != edge.to())
+        }
+    }
+
+    private fun Graph.allEdges() = edges(0, edgeCount)
+}
@@ -0,0 +1,83 @@
+package benchmarks
+
+import benchmarks.util.*
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.io.FileOutputStream
+import java.io.OutputStream
+import java.util.zip.GZIPOutputStream
+import kotlin.random.Random
+
+class GraphParserTest {
+    private val random = Random(36)
+
+    @Test
+    fun grFile() {
+        val text = buildString {
+            append("c a comment\n")
+            append("p sp 1000 3000\n")
+            repeat(3000) {
+                append("a ${random.nextInt(1000) + 1} ${random.nextInt(1000) + 1} ${random.nextInt(100)}\n")
+            }
+        }
+        check(text, GraphFormat.GR, "gr") { file, compressed -> parseGrFile(file, compressed) }
+    }
+
+    @Test
+    fun txtFile() {
+        val text = buildString {
+            append("# a comment\n")
+            repeat(3000) {
+                append("${random.nextInt(100_000)}\t${random.nextInt(100_000)}\n")
+            }
+        }
+        check(text, GraphFormat.TXT, "txt") { file, compressed -> parseTxtFile(file, compressed) }
+    }
+
+    @Test
+    fun metisFile() {
+        val nodes = 1000
+        val text = buildString {
+            append("$nodes 0\n")
+            repeat(nodes) {
+                // some lines are empty
+                repeat(random.nextInt(5)) {
+                    append(" ${random.nextInt(nodes) + 1}")
+                }
+                append("\n")
+            }
+        }
+        check(text, GraphFormat.GRAPH, "graph") { file, compressed -> parseGraphFile(file, compressed) }
+    }
+
+    private fun check(text: String, format: GraphFormat, extension: String, parse: (String, Boolean) -> Graph) {
+        val plain = File.createTempFile("graph", ".$extension")
+        val compressed = File.createTempFile("graph", ".$extension.compressed")
+        try {
+            plain.writeText(text)
+            val compression = if (format == GraphFormat.GRAPH) Compression.BZIP2 else Compression.GZIP
+            FileOutputStream(compressed).use { output ->
+                val stream: OutputStream =
+                    if (compression == Compression.GZIP) GZIPOutputStream(output) else BZip2CompressorOutputStream(output)
+                stream.use { it.write(text.toByteArray()) }
+            }
+
+            val expected = parse(plain.path, false)
+            for (chunks in listOf(1, 2, 7, 1000))
+                assertSameGraph(expected, parseGraphParallel(plain.path, format, Compression.NONE, chunks = chunks))
+            // small blocks, so that lines are split between them
+            for (blockSize in listOf(8, 100, 1 shl 20))
+                assertSameGraph(expected, parseGraphParallel(compressed.path, format, compression, blockSize = blockSize))
+        } finally {
+            plain.delete()
+            compressed.delete()
+        }
+    }
+
+    private fun assertSameGraph(expected: Graph, actual: Graph) {
+        assertEquals(expected.nodes, actual.nodes)
+        assertArrayEquals(expected.edges(0, expected.edgeCount), actual.edges(0, actual.edgeCount))
+    }
+}
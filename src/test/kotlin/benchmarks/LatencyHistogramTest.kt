@@ -0,0 +1,54 @@
+package benchmarks
+
+import benchmarks.util.LatencyHistogram
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.math.ceil
+import kotlin.random.Random
+
+class LatencyHistogramTest {
+    @Test
+    fun percentiles() {
+        val random = Random(3)
+        // a wide range of magnitudes, as latencies with rare long pauses
+        val values = LongArray(100_000) { (random.nextDouble() * random.nextDouble() * 1e9).toLong() shr random.nextInt(20) }
+        val histogram = LatencyHistogram()
+        values.forEach { histogram.record(it) }
+        values.sort()
+        assertEquals(values.size.toLong(), histogram.count)
+        assertEquals(values.last(), histogram.max)
+        for (p in listOf(0.0, 0.1, 0.5, 0.9, 0.99, 0.999, 0.9999, 1.0)) {
+            val exact = values[maxOf(0, ceil(p * values.size).toInt() - 1)]
+            val estimate = histogram.percentile(p)
+            assertTrue(estimate >= exact)
+            assertTrue(estimate - exact <= exact / 32)
+        }
+    }
+
+    @Test
+    fun merge() {
+        val random = Random(4)
+        val all = LatencyHistogram()
+        val parts = Array(4) { LatencyHistogram() }
+        repeat(10_000) {
+            val value = random.nextLong(1_000_000)
+            all.record(value)
+            parts[it % parts.size].record(value)
+        }
+        val merged = LatencyHistogram()
+        parts.forEach { merged.add(it) }
+        assertEquals(all.count, merged.count)
+        assertEquals(all.max, merged.max)
+        for (p in listOf(0.5, 0.9, 0.99))
+            assertEquals(all.percentile(p), merged.percentile(p))
+    }
+
+    @Test
+    fun smallValuesAreExact() {
+        val histogram = LatencyHistogram()
+        for (value in 0L until 64)
+            histogram.record(value)
+        for (value in 0L until 64)
+            assertEquals(value, histogram.percentile((value + 1) / 64.0))
+    }
+}
@@ -1,11 +1,18 @@
 package benchmarks
 
 import benchmarks.util.Graph
+import benchmarks.util.OperationKind
+import benchmarks.util.OperationLatencies
+import benchmarks.util.executors.OpenLoopScenarioExecutor
 import benchmarks.util.executors.ScenarioExecutor
+import benchmarks.util.generators.FullyRandomScenarioGenerator
 import benchmarks.util.generators.RandomScenarioGenerator
 import benchmarks.util.bidirectionalEdge
 import connectivity.concurrent.general.NBReadsCoarseGrainedLockingDynamicConnectivity
+import connectivity.concurrent.general.major.MajorDynamicConnectivity
+import org.junit.Assert.*
 import org.junit.Test
+import java.util.concurrent.atomic.AtomicLong
 
 class ScenarioExecutorTest {
     @Test
@@ -41,5 +48,74 @@ class ScenarioExecutorTest {
             )
             executor.run()
         }
+
+        val streaming = RandomScenarioGenerator()
+            .stream(graph, 3, 6, 1, 1, true, 1)
+        repeat(100) {
+            val executor = ScenarioExecutor(
+                streaming,
+                ::NBReadsCoarseGrainedLockingDynamicConnectivity
+            )
+            executor.run()
+        }
+    }
+
+    @Test
+    fun latencies() {
+        val graph = Graph(100, LongArray(300) { bidirectionalEdge(it % 100, (it * 7 + 1) % 100) })
+        val scenario = FullyRandomScenarioGenerator()
+            .stream(graph, 3, 3000, 1, 1, true, 1)
+        for (withOutcomes in listOf(true, false)) {
+            val latencies = OperationLatencies(3, withOutcomes)
+            val executor = ScenarioExecutor(
+                scenario,
+                { size -> if (withOutcomes) MajorDynamicConnectivity(size, latencies) else MajorDynamicConnectivity(size) },
+                latencies = latencies
+            )
+            executor.run()
+            val merged = latencies.merged()
+            assertTrue(merged.getValue(OperationKind.CONNECTED).count > 0)
+            val outcomes = listOf(
+                OperationKind.SPANNING_ADD, OperationKind.NON_SPANNING_ADD,
+                OperationKind.REMOVE_WITH_REPLACEMENT, OperationKind.REMOVE_WITHOUT_REPLACEMENT, OperationKind.NON_SPANNING_REMOVE
+            )
+            if (withOutcomes) {
+                assertEquals(0L, merged.getValue(OperationKind.ADD).count + merged.getValue(OperationKind.REMOVE).count)
+                assertTrue(merged.getValue(OperationKind.SPANNING_ADD).count > 0)
+                assertTrue(merged.getValue(OperationKind.REMOVE_WITHOUT_REPLACEMENT).count > 0)
+            } else {
+                assertTrue(merged.getValue(OperationKind.ADD).count > 0)
+                assertEquals(0L, outcomes.map { merged.getValue(it).count }.sum())
+            }
+        }
+    }
+
+    @Test
+    fun openLoop() {
+        val graph = Graph(100, LongArray(300) { bidirectionalEdge(it % 100, (it * 7 + 1) % 100) })
+        val scenario = FullyRandomScenarioGenerator()
+            .stream(graph, 1, 2000, 1, 4, false, 1)
+        // a fake clock that advances by 10 us on each read, so the outcome does not depend on the machine load
+        fun fakeClock(): () -> Long {
+            val time = AtomicLong()
+            return { time.addAndGet(10_000) }
+        }
+
+        // the queries scheduled every 100 us for 100 ms are executed on time
+        val executor = OpenLoopScenarioExecutor(scenario, ::MajorDynamicConnectivity, 10_000.0, 100_000_000L,
+            generatorThreads = 0, clock = fakeClock())
+        val achieved = executor.run()
+        val merged = executor.latencies.merged()
+        assertEquals(1000L, merged.values.map { it.count }.sum())
+        assertTrue(achieved > 9_000 && achieved <= 10_000)
+        assertTrue(merged.values.all { it.max < 100_000 })
+
+        // an unreachable rate: query i is scheduled at i ns but takes two clock reads, i.e. ends at about 20 i us
+        val overloaded = OpenLoopScenarioExecutor(scenario, ::MajorDynamicConnectivity, 1e9, 1_000_000_000L,
+            generatorThreads = 0, clock = fakeClock())
+        overloaded.run()
+        val late = overloaded.latencies.merged()
+        assertEquals(2000L, late.values.map { it.count }.sum())
+        assertTrue(late.values.map { it.max }.maxOrNull()!! > 30_000_000)
     }
-}
\ No newline at end of file
+}
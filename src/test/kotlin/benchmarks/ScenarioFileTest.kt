@@ -0,0 +1,83 @@
+package benchmarks
+
+import benchmarks.util.*
+import benchmarks.util.executors.ScenarioExecutor
+import benchmarks.util.executors.SuccessiveScenarioExecutor
+import benchmarks.util.generators.IncrementalScenarioGenerator
+import benchmarks.util.generators.RandomScenarioGenerator
+import connectivity.concurrent.general.NBReadsCoarseGrainedLockingDynamicConnectivity
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+
+class ScenarioFileTest {
+    private val graph = randomGraph(100, 400)
+
+    @Test
+    fun roundTrip() {
+        val scenario = RandomScenarioGenerator().generate(graph, 3, 1000, 1, 1, true, 1)
+        withFile { file ->
+            writeScenario(file.path, scenario)
+            val mapped = mapScenario(file.path)
+            assertEquals(scenario.nodes, mapped.nodes)
+            assertEquals(scenario.threads, mapped.threads)
+            assertArrayEquals(scenario.initialEdges, mapped.initialEdges.toArray())
+            for (thread in 0 until scenario.threads)
+                assertArrayEquals(scenario.queries[thread], mapped.queries[thread].toArray())
+
+            ScenarioExecutor(mapped.streaming(), ::NBReadsCoarseGrainedLockingDynamicConnectivity).run()
+        }
+    }
+
+    @Test
+    fun streamedRoundTrip() {
+        val streaming = RandomScenarioGenerator().stream(graph, 2, 50_000, 1, 1, true, 1)
+        withFile { file ->
+            writeScenario(file.path, streaming)
+            val mapped = mapScenario(file.path)
+            val sources = streaming.sources()
+            for (thread in 0 until streaming.threads) {
+                val chunk = LongArray(streaming.queriesPerThread)
+                assertEquals(chunk.size, sources[thread].next(chunk))
+                assertArrayEquals(chunk, mapped.queries[thread].toArray())
+            }
+        }
+    }
+
+    @Test
+    fun successive() {
+        val scenario = IncrementalScenarioGenerator().generate(graph, 3)
+        withFile { file ->
+            writeScenario(file.path, scenario)
+            repeat(10) {
+                SuccessiveScenarioExecutor(mapScenario(file.path), ::NBReadsCoarseGrainedLockingDynamicConnectivity).run()
+            }
+        }
+    }
+
+    @Test
+    fun truncated() {
+        val scenario = RandomScenarioGenerator().generate(graph, 3, 100, 1, 1, false, 1)
+        withFile { file ->
+            writeScenario(file.path, scenario)
+            RandomAccessFile(file, "rw").use { it.setLength(it.length() - 8) }
+            try {
+                mapScenario(file.path)
+                fail()
+            } catch (e: IllegalStateException) {
+            }
+        }
+    }
+
+    private fun withFile(action: (File) -> Unit) {
+        val file = File.createTempFile("scenario", ".bin")
+        try {
+            action(file)
+        } finally {
+            file.delete()
+        }
+    }
+
+    private fun java.nio.LongBuffer.toArray() = LongArray(limit()).also { duplicate().get(it) }
+}
@@ -2,6 +2,7 @@ package benchmarks
 
 import benchmarks.util.*
 import benchmarks.util.generators.*
+import it.unimi.dsi.fastutil.longs.LongArrayList
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet
 import org.junit.Assert.*
 import org.junit.Test
@@ -55,6 +56,20 @@ class ScenarioGeneratorTest {
     }
 
 
+    @Test
+    fun randomScenarioStreamTest() {
+        val streaming = RandomScenarioGenerator()
+            .stream(graph, 3, 6, 1, 1, true, 1)
+        assertEquals(8, streaming.initialEdges.size)
+        val queries = collect(streaming, 4)
+        assertEquals(3, queries.size)
+        assertEquals(6 * OVERHEAD_RATIO, queries[0].size)
+        // the sources are recreated with the same queries
+        for (thread in 0 until 3)
+            assertArrayEquals(queries[thread], collect(streaming, 7)[thread])
+        runScenario(Scenario(streaming.nodes, streaming.threads, streaming.initialEdges, queries))
+    }
+
     @Test
     fun incrementalScenarioGeneratorTest() {
         val scenario = IncrementalScenarioGenerator().generate(graph, 4)
@@ -82,6 +97,18 @@ class ScenarioGeneratorTest {
         assertEquals(6 * OVERHEAD_RATIO, scenario.queries[0].size)
     }
 
+    private fun collect(scenario: StreamingScenario, chunkSize: Int): Array<LongArray> =
+        scenario.sources().map { source ->
+            val queries = LongArrayList()
+            val chunk = LongArray(chunkSize)
+            while (true) {
+                val size = source.next(chunk)
+                if (size == 0) break
+                queries.addElements(queries.size, chunk, 0, size)
+            }
+            queries.toLongArray()
+        }.toTypedArray()
+
     private fun runScenario(scenario: Scenario): Set<Long> {
         val set = LongOpenHashSet()
         scenario.initialEdges.forEach { set.add(normalizeEdge(it)) }
@@ -52,7 +52,7 @@ class GeneralDynamicConnectivityMultipleWriterExecutionGenerator(testConfigurati
         val scenario = scenarioGenerator.generate(graph, threads, actorsPerThread, 2, 1, false, 1)
 
         val initExecution = scenario.initialEdges.map { addEdgeActor(it.to(), it.from()) }
-        val postExecution = graph.edges.map { connectedActor(it.to(), it.from()) }
+        val postExecution = (0 until graph.edgeCount).map { graph.edge(it).let { edge -> connectedActor(edge.to(), edge.from()) } }
         val parallelExecution = scenario.queries.map {
             it.map { op -> createActor(op) }
         }
@@ -0,0 +1,59 @@
+package connectivity.concurrent
+
+import connectivity.concurrent.general.NBReadsCoarseGrainedLockingDynamicConnectivity
+import connectivity.concurrent.general.major.MajorDynamicConnectivity
+import org.junit.Assert.*
+import org.junit.Test
+
+class RetryHistogramTest {
+    @Test
+    fun record() {
+        val histogram = RetryHistogram(3)
+        histogram.record(0)
+        histogram.record(0)
+        histogram.record(2)
+        histogram.recordFallback()
+        assertArrayEquals(longArrayOf(2, 0, 1, 0), histogram.counts())
+        assertEquals(1L, histogram.fallbacks())
+
+        histogram.reset()
+        assertArrayEquals(longArrayOf(0, 0, 0, 0), histogram.counts())
+        assertEquals(0L, histogram.fallbacks())
+    }
+
+    @Test
+    fun clamp() {
+        val histogram = RetryHistogram(3)
+        histogram.record(3)
+        histogram.record(4)
+        histogram.record(Int.MAX_VALUE)
+        assertArrayEquals(longArrayOf(0, 0, 0, 3), histogram.counts())
+    }
+
+    @Test
+    fun attached() {
+        val major = MajorDynamicConnectivity(4)
+        val coarseGrained = NBReadsCoarseGrainedLockingDynamicConnectivity(4)
+        for ((dc, setHistogram) in listOf(
+            major to { histogram: RetryHistogram -> major.retryHistogram = histogram },
+            coarseGrained to { histogram: RetryHistogram -> coarseGrained.retryHistogram = histogram }
+        )) {
+            val histogram = RetryHistogram(2)
+            setHistogram(histogram)
+            dc.addEdge(0, 1)
+            // without concurrent updates the first attempt succeeds
+            assertTrue(dc.connected(0, 1))
+            assertFalse(dc.connected(0, 2))
+            assertArrayEquals(longArrayOf(2, 0, 0), histogram.counts())
+            assertEquals(0L, histogram.fallbacks())
+        }
+
+        // no attempts, every read falls back
+        val histogram = RetryHistogram(2)
+        major.retryHistogram = histogram
+        major.connectedTries = 0
+        assertTrue(major.connected(0, 1))
+        assertEquals(1L, histogram.fallbacks())
+        assertArrayEquals(longArrayOf(0, 0, 0), histogram.counts())
+    }
+}
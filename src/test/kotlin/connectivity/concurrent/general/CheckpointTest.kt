@@ -0,0 +1,83 @@
+package connectivity.concurrent.general
+
+import connectivity.concurrent.general.major.MajorDynamicConnectivity
+import connectivity.sequential.SlowConnectivity
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import kotlin.random.Random
+
+class CheckpointTest {
+    @Test
+    fun restoreAndContinue() {
+        val random = Random(42)
+        val file = File.createTempFile("checkpoint", ".bin")
+        try {
+            repeat(300) {
+                val nodes = 2 + random.nextInt(30)
+                val dc = MajorDynamicConnectivity(nodes)
+                val slow = SlowConnectivity(nodes)
+                // removals promote edges to the upper levels
+                repeat(200) { update(dc, slow, nodes, random) }
+
+                dc.checkpoint(file.path)
+                val restored = MajorDynamicConnectivity.restore(file.path, rootHints = random.nextBoolean())
+                checkConnectivity(restored, slow, nodes)
+
+                // the restored levels support further updates
+                repeat(200) {
+                    update(restored, slow, nodes, random)
+                    val u = random.nextInt(nodes)
+                    val v = random.nextInt(nodes)
+                    assertEquals(slow.sameComponent(u, v), restored.connected(u, v))
+                }
+                checkConnectivity(restored, slow, nodes)
+            }
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test
+    fun corrupted() {
+        val file = File.createTempFile("checkpoint", ".bin")
+        try {
+            val dc = MajorDynamicConnectivity(10)
+            for (i in 0 until 9)
+                dc.addEdge(i, i + 1)
+            dc.checkpoint(file.path)
+            RandomAccessFile(file, "rw").use {
+                it.seek(it.length() - 1)
+                it.write(it.read() + 1)
+            }
+            try {
+                MajorDynamicConnectivity.restore(file.path)
+                fail()
+            } catch (e: IllegalStateException) {
+            }
+        } finally {
+            file.delete()
+        }
+    }
+
+    private fun update(dc: MajorDynamicConnectivity, slow: SlowConnectivity, nodes: Int, random: Random) {
+        val u = random.nextInt(nodes)
+        val v = random.nextInt(nodes)
+        if (u == v) return
+        if (random.nextInt(3) != 0) {
+            dc.addEdge(u, v)
+            slow.removeEdge(u, v)
+            slow.addEdge(u, v)
+        } else {
+            dc.removeEdge(u, v)
+            slow.removeEdge(u, v)
+        }
+    }
+
+    private fun checkConnectivity(dc: MajorDynamicConnectivity, slow: SlowConnectivity, nodes: Int) {
+        for (u in 0 until nodes)
+            for (v in 0 until nodes)
+                assertEquals(slow.sameComponent(u, v), dc.connected(u, v))
+    }
+}
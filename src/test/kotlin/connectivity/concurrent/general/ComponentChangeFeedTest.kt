@@ -0,0 +1,136 @@
+package connectivity.concurrent.general
+
+import connectivity.concurrent.general.major.*
+import connectivity.concurrent.general.major_coarse_grained.MajorCoarseGrainedDynamicConnectivity
+import connectivity.sequential.SlowConnectivity
+import connectivity.sequential.general.DynamicConnectivity
+import connectivity.u
+import connectivity.v
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.concurrent.thread
+import kotlin.random.Random
+
+class ComponentChangeFeedTest {
+    private val engines = listOf<(Int, ComponentChangeFeed) -> DynamicConnectivity>(
+        { size, feed -> MajorDynamicConnectivity(size, feed) },
+        { size, feed -> MajorCoarseGrainedDynamicConnectivity(size, forestListener = feed) }
+    )
+
+    @Test
+    fun eventsFollowComponents() {
+        val random = Random(11)
+        val batch = LongArray(16)
+        for (engine in engines) {
+            repeat(100) {
+                val nodes = 2 + random.nextInt(20)
+                val feed = ComponentChangeFeed(16)
+                val dc = engine(nodes, feed)
+                val slow = SlowConnectivity(nodes)
+                var components = nodes
+                repeat(300) {
+                    val u = random.nextInt(nodes)
+                    val v = random.nextInt(nodes)
+                    if (u == v) return@repeat
+                    val wasConnected = slow.sameComponent(u, v)
+                    if (random.nextInt(3) != 0) {
+                        dc.addEdge(u, v)
+                        slow.removeEdge(u, v)
+                        slow.addEdge(u, v)
+                    } else {
+                        dc.removeEdge(u, v)
+                        slow.removeEdge(u, v)
+                    }
+                    val count = feed.drain(batch)
+                    // at most one component change per update
+                    assertTrue(count <= 1)
+                    if (count == 1) {
+                        val edge = batch[0].eventEdge()
+                        assertEquals(minOf(u, v), edge.u())
+                        assertEquals(maxOf(u, v), edge.v())
+                        assertEquals(batch[0].isMerge(), !wasConnected)
+                        components += if (batch[0].isMerge()) -1 else 1
+                    }
+                    assertEquals(wasConnected != slow.sameComponent(u, v), count == 1)
+                }
+                assertEquals(componentCount(slow, nodes), components)
+                assertEquals(0L, feed.lost)
+            }
+        }
+    }
+
+    @Test
+    fun concurrentConsumer() {
+        val nodes = 100
+        for (engine in engines) {
+            val feed = ComponentChangeFeed(1 shl 10)
+            val dc = engine(nodes, feed)
+            val done = AtomicBoolean()
+            var components = nodes
+            val consumer = thread {
+                val batch = LongArray(64)
+                while (true) {
+                    val finished = done.get()
+                    val count = feed.drain(batch)
+                    for (i in 0 until count)
+                        components += if (batch[i].isMerge()) -1 else 1
+                    if (finished && count == 0) break
+                }
+            }
+            (0 until 3).map { id ->
+                thread {
+                    val random = Random(id)
+                    repeat(5000) {
+                        val u = random.nextInt(nodes)
+                        val v = random.nextInt(nodes)
+                        if (u == v) return@repeat
+                        if (random.nextInt(2) == 0) dc.addEdge(u, v) else dc.removeEdge(u, v)
+                    }
+                }
+            }.forEach { it.join() }
+            done.set(true)
+            consumer.join()
+
+            assertEquals(0L, feed.lost)
+            val roots = (0 until nodes).filter { u -> (0 until u).none { dc.connected(it, u) } }
+            assertEquals(roots.size, components)
+        }
+    }
+
+    @Test
+    fun fullBuffer() {
+        val feed = ComponentChangeFeed(4)
+        val dc = MajorDynamicConnectivity(10, feed)
+        for (i in 0 until 9)
+            dc.addEdge(i, i + 1)
+        val batch = LongArray(16)
+        assertEquals(4, feed.drain(batch))
+        assertEquals(5L, feed.lost)
+        // the buffer is reused after the drain
+        dc.removeEdge(0, 1)
+        assertEquals(1, feed.drain(batch))
+        assertFalse(batch[0].isMerge())
+    }
+
+    @Test
+    fun smallestBuffer() {
+        try {
+            ComponentChangeFeed(1)
+            fail()
+        } catch (e: IllegalArgumentException) {}
+        val feed = ComponentChangeFeed(2)
+        val dc = MajorDynamicConnectivity(4, feed)
+        for (i in 0 until 3)
+            dc.addEdge(i, i + 1)
+        val batch = LongArray(4)
+        assertEquals(2, feed.drain(batch))
+        assertEquals(1L, feed.lost)
+        // the first events are kept
+        assertEquals(0, batch[0].eventEdge().u())
+        assertEquals(1, batch[1].eventEdge().u())
+    }
+
+    private fun componentCount(slow: SlowConnectivity, nodes: Int) =
+        (0 until nodes).count { u -> (0 until u).none { slow.sameComponent(it, u) } }
+}
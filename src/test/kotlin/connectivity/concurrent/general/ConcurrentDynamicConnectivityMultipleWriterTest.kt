@@ -2,6 +2,7 @@ package connectivity.concurrent.general
 
 import connectivity.concurrent.GeneralDynamicConnectivityMultipleWriterExecutionGenerator
 import connectivity.concurrent.general.major.*
+import connectivity.concurrent.general.sharded.*
 import connectivity.sequential.SlowConnectivity
 import connectivity.sequential.general.*
 import org.jetbrains.kotlinx.lincheck.*
@@ -12,6 +13,8 @@ import org.jetbrains.kotlinx.lincheck.paramgen.IntGen
 import org.jetbrains.kotlinx.lincheck.strategy.managed.modelchecking.*
 import org.jetbrains.kotlinx.lincheck.strategy.stress.*
 import org.junit.*
+import thirdparty.Aksenov239.fc.FCParallelReadsGraph
+import thirdparty.Aksenov239.fc.FCPartitionedDynamicGraph
 
 private const val n1 = 5
 private const val n2 = 7
@@ -116,3 +119,13 @@ class MajorDCTest4 : LinCheckDynamicConnectivityTest1(::MajorDynamicConnectivity
 class MajorDCTest5 : LinCheckDynamicConnectivityTest2(::MajorDynamicConnectivity, true, null)
 class MajorDCTest6 : LinCheckDynamicConnectivityTest3(::MajorDynamicConnectivity, true, null)
 
+class HashShardedDCTest1 : LinCheckDynamicConnectivityTest2({ size -> ShardedDynamicConnectivity(size, 2, ShardPartitioning.HASH) }, false, GeneralDynamicConnectivityMultipleWriterExecutionGenerator::class.java)
+class HashShardedDCTest2 : LinCheckDynamicConnectivityTest2({ size -> ShardedDynamicConnectivity(size, 2, ShardPartitioning.HASH) }, true, null)
+class RangeShardedDCTest1 : LinCheckDynamicConnectivityTest2({ size -> ShardedDynamicConnectivity(size, 2, ShardPartitioning.RANGE) }, false, GeneralDynamicConnectivityMultipleWriterExecutionGenerator::class.java)
+class RangeShardedDCTest2 : LinCheckDynamicConnectivityTest2({ size -> ShardedDynamicConnectivity(size, 2, ShardPartitioning.RANGE) }, true, null)
+
+class FCParallelReadsTest1 : LinCheckDynamicConnectivityTest2({ size -> FCParallelReadsGraph(size, 3) }, false, GeneralDynamicConnectivityMultipleWriterExecutionGenerator::class.java)
+class FCParallelReadsTest2 : LinCheckDynamicConnectivityTest2({ size -> FCParallelReadsGraph(size, 3) }, true, null)
+
+class FCPartitionedTest1 : LinCheckDynamicConnectivityTest2({ size -> FCPartitionedDynamicGraph(size, 3, 2) }, false, GeneralDynamicConnectivityMultipleWriterExecutionGenerator::class.java)
+class FCPartitionedTest2 : LinCheckDynamicConnectivityTest2({ size -> FCPartitionedDynamicGraph(size, 3, 2) }, true, null)
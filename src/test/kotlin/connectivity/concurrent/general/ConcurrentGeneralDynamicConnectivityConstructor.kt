@@ -2,16 +2,23 @@ package connectivity.concurrent.general
 
 import connectivity.concurrent.general.major.MajorDynamicConnectivity
 import connectivity.concurrent.general.major_coarse_grained.MajorCoarseGrainedDynamicConnectivity
+import connectivity.concurrent.general.sharded.ShardPartitioning
+import connectivity.concurrent.general.sharded.ShardedDynamicConnectivity
 import connectivity.sequential.general.DynamicConnectivity
 
 enum class ConcurrentGeneralDynamicConnectivityConstructor(val construct: (size: Int) -> DynamicConnectivity) {
     CoarseGrainedLockingDynamicConnectivity(::CoarseGrainedLockingDynamicConnectivity),
+    OptimisticCoarseGrainedLockingDynamicConnectivity(::OptimisticCoarseGrainedLockingDynamicConnectivity),
     /*CoarseGrainedReadWriteLockingDynamicConnectivity(::CoarseGrainedReadWriteLockingDynamicConnectivity),
     FineGrainedLockingDynamicConnectivity(::FineGrainedLockingDynamicConnectivity),
     FineGrainedReadWriteLockingDynamicConnectivity(::FineGrainedReadWriteLockingDynamicConnectivity),
     NBReadsCoarseGrainedLockingDynamicConnectivity(::NBReadsCoarseGrainedLockingDynamicConnectivity),
     NBReadsFineGrainedLockingDynamicConnectivity(::NBReadsFineGrainedLockingDynamicConnectivity),*/
     MajorDynamicConnectivity(::MajorDynamicConnectivity),
+    MajorDynamicConnectivityRootHints({ size -> MajorDynamicConnectivity(size, rootHints = true) }),
+    HashShardedDynamicConnectivity({ size -> ShardedDynamicConnectivity(size, 2, ShardPartitioning.HASH) }),
+    RangeShardedDynamicConnectivity({ size -> ShardedDynamicConnectivity(size, 2, ShardPartitioning.RANGE) }),
+    FCParallelReadsDynamicConnectivity({ size -> thirdparty.Aksenov239.fc.FCParallelReadsGraph(size, 3) }),
     /*MajorCoarseGrainedDynamicConnectivity(::MajorCoarseGrainedDynamicConnectivity),
     FCDynamicConnectivity( { size -> thirdparty.Aksenov239.fc.FCDynamicGraph(size, 3) })*/
 }
@@ -0,0 +1,91 @@
+package connectivity.concurrent.general
+
+import connectivity.concurrent.general.major.MajorDynamicConnectivity
+import connectivity.makeEdge
+import connectivity.u
+import connectivity.v
+import connectivity.sequential.SlowConnectivity
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.concurrent.thread
+import kotlin.random.Random
+
+class ConnectedSnapshotTest {
+    @Test
+    fun sequential() {
+        val random = Random(31)
+        repeat(2000) {
+            val nodes = 2 + random.nextInt(10)
+            val dc = MajorDynamicConnectivity(nodes)
+            val slow = SlowConnectivity(nodes)
+            repeat(30) {
+                val u = random.nextInt(nodes)
+                val v = random.nextInt(nodes)
+                if (u != v) {
+                    if (random.nextBoolean()) {
+                        dc.addEdge(u, v)
+                        slow.removeEdge(u, v)
+                        slow.addEdge(u, v)
+                    } else {
+                        dc.removeEdge(u, v)
+                        slow.removeEdge(u, v)
+                    }
+                }
+                val pairs = LongArray(1 + random.nextInt(5)) {
+                    makeEdge(random.nextInt(nodes), random.nextInt(nodes))
+                }
+                val result = dc.connectedSnapshot(pairs)
+                for (i in pairs.indices) {
+                    val edge = pairs[i]
+                    val expected = slow.sameComponent(edge.u(), edge.v())
+                    assertEquals(expected, result[i])
+                }
+            }
+        }
+    }
+
+    @Test
+    fun lockedLargeBatch() {
+        // every pair has its own components, so the fallback locks 2 * pairs roots
+        val nodes = 100_000
+        val dc = MajorDynamicConnectivity(nodes).apply { snapshotTries = 0 }
+        for (v in 0 until nodes step 4)
+            dc.addEdge(v, v + 1)
+        val pairs = LongArray(nodes / 2) { makeEdge(2 * it, 2 * it + 1) }
+        val result = dc.connectedSnapshot(pairs)
+        for (i in pairs.indices)
+            assertEquals(i % 2 == 0, result[i])
+    }
+
+    @Test
+    fun concurrentPath() {
+        // on a path, the vertices connected to 0 always form a prefix,
+        // which independent connected() calls do not guarantee
+        val nodes = 64
+        val dc = MajorDynamicConnectivity(nodes)
+        for (i in 0 until nodes - 1)
+            dc.addEdge(i, i + 1)
+        val pairs = LongArray(nodes - 1) { makeEdge(0, it + 1) }
+
+        val stop = AtomicBoolean(false)
+        val writers = (0 until 3).map { id ->
+            thread {
+                val random = Random(id)
+                while (!stop.get()) {
+                    val u = random.nextInt(nodes - 1)
+                    dc.removeEdge(u, u + 1)
+                    dc.addEdge(u, u + 1)
+                }
+            }
+        }
+
+        repeat(20000) {
+            val result = dc.connectedSnapshot(pairs)
+            for (i in 1 until result.size)
+                assertFalse(!result[i - 1] && result[i])
+        }
+        stop.set(true)
+        writers.forEach { it.join() }
+    }
+}
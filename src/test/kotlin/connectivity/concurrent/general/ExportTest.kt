@@ -0,0 +1,109 @@
+package connectivity.concurrent.general
+
+import connectivity.concurrent.general.major.MajorDynamicConnectivity
+import connectivity.makeEdge
+import connectivity.sequential.SlowConnectivity
+import connectivity.u
+import connectivity.v
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.concurrent.thread
+import kotlin.random.Random
+
+class ExportTest {
+    @Test
+    fun smallGraphs() {
+        val random = Random(5)
+        repeat(200) {
+            val nodes = 1 + random.nextInt(30)
+            val dc = MajorDynamicConnectivity(nodes, rootHints = random.nextBoolean())
+            val slow = SlowConnectivity(nodes)
+            val edges = HashSet<Long>()
+            repeat(random.nextInt(100)) {
+                val u = random.nextInt(nodes)
+                val v = random.nextInt(nodes)
+                if (u == v) return@repeat
+                if (random.nextInt(3) != 0) {
+                    dc.addEdge(u, v)
+                    slow.removeEdge(u, v)
+                    slow.addEdge(u, v)
+                    edges.add(makeEdge(u, v))
+                } else {
+                    dc.removeEdge(u, v)
+                    slow.removeEdge(u, v)
+                    edges.remove(makeEdge(u, v))
+                }
+            }
+
+            val labels = IntArray(nodes)
+            dc.exportLabels(labels)
+            for (u in 0 until nodes) {
+                assertTrue(slow.sameComponent(u, labels[u]))
+                for (v in 0 until nodes)
+                    assertEquals(slow.sameComponent(u, v), labels[u] == labels[v])
+            }
+
+            val forest = dc.exportSpanningForest()
+            assertTrue(forest.all { it in edges })
+            // the forest connects the same vertices
+            val forestConnectivity = SlowConnectivity(nodes)
+            forest.forEach { forestConnectivity.addEdge(it.u(), it.v()) }
+            for (u in 0 until nodes)
+                for (v in 0 until nodes)
+                    assertEquals(slow.sameComponent(u, v), forestConnectivity.sameComponent(u, v))
+            assertEquals(nodes - labels.distinct().size, forest.size)
+        }
+    }
+
+    @Test
+    fun largeComponents() {
+        // two long paths, so that the trees are labeled by several tasks
+        val nodes = 40_000
+        val dc = MajorDynamicConnectivity(nodes)
+        for (v in 0 until nodes - 2)
+            dc.addEdge(v, v + 2)
+        val labels = IntArray(nodes)
+        dc.exportLabels(labels)
+        for (v in 0 until nodes) {
+            assertEquals(labels[v % 2], labels[v])
+            assertEquals(v % 2, labels[v] % 2)
+        }
+        assertEquals(nodes - 2, dc.exportSpanningForest().size)
+    }
+
+    @Test
+    fun concurrentUpdates() {
+        val nodes = 1000
+        val dc = MajorDynamicConnectivity(nodes)
+        val done = AtomicBoolean()
+        val updaters = (0 until 2).map { id ->
+            thread {
+                val random = Random(id)
+                while (!done.get()) {
+                    val u = random.nextInt(nodes)
+                    val v = random.nextInt(nodes)
+                    if (u == v) continue
+                    if (random.nextBoolean()) dc.addEdge(u, v) else dc.removeEdge(u, v)
+                }
+            }
+        }
+        val labels = IntArray(nodes)
+        repeat(50) {
+            dc.exportLabels(labels)
+            assertTrue(labels.all { it in 0 until nodes })
+            // the trees of the components changed during the call do not overlap
+            val forestConnectivity = SlowConnectivity(nodes)
+            for (edge in dc.exportSpanningForest()) {
+                assertFalse(forestConnectivity.sameComponent(edge.u(), edge.v()))
+                forestConnectivity.addEdge(edge.u(), edge.v())
+            }
+        }
+        done.set(true)
+        updaters.forEach { it.join() }
+        // exact again without updates
+        dc.exportLabels(labels)
+        for (u in 0 until nodes)
+            assertTrue(dc.connected(u, labels[u]))
+    }
+}
@@ -0,0 +1,132 @@
+package connectivity.concurrent.general
+
+import connectivity.concurrent.general.major.MajorDynamicConnectivity
+import connectivity.concurrent.general.wal.*
+import connectivity.sequential.SlowConnectivity
+import connectivity.sequential.general.DynamicConnectivity
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import kotlin.concurrent.thread
+import kotlin.random.Random
+
+class WriteAheadLogTest {
+    @Test
+    fun recoverFromCheckpointAndLog() {
+        val random = Random(7)
+        val checkpoint = File.createTempFile("checkpoint", ".bin")
+        val logFile = File.createTempFile("updates", ".wal")
+        try {
+            repeat(50) {
+                val nodes = 2 + random.nextInt(30)
+                val major = MajorDynamicConnectivity(nodes)
+                val dc = LoggedDynamicConnectivity(major)
+                val slow = SlowConnectivity(nodes)
+                repeat(100) { update(dc, slow, nodes, random) }
+                major.checkpoint(checkpoint.path)
+
+                logFile.writeBytes(ByteArray(0))
+                WriteAheadLog(logFile.path, random.nextLong(0, 100_000)).use { log ->
+                    dc.log = log
+                    repeat(200) { update(dc, slow, nodes, random) }
+                }
+                val recovered = recover(nodes, logFile.path, checkpoint.path)
+                checkConnectivity(recovered, slow, nodes)
+                // the recovered instance supports further updates
+                repeat(100) { update(recovered, slow, nodes, random) }
+                checkConnectivity(recovered, slow, nodes)
+            }
+        } finally {
+            checkpoint.delete()
+            logFile.delete()
+        }
+    }
+
+    @Test
+    fun concurrentUpdates() {
+        val nodes = 200
+        val logFile = File.createTempFile("updates", ".wal")
+        try {
+            val dc = LoggedDynamicConnectivity(MajorDynamicConnectivity(nodes))
+            WriteAheadLog(logFile.path, 50_000).use { log ->
+                dc.log = log
+                (0 until 3).map { id ->
+                    thread {
+                        val random = Random(id)
+                        repeat(3000) {
+                            val u = random.nextInt(nodes)
+                            val v = random.nextInt(nodes)
+                            if (u == v) return@repeat
+                            // the threads share the edges, so the order of their updates matters
+                            if (random.nextInt(3) != 0)
+                                dc.addEdge(u, v)
+                            else
+                                dc.removeEdge(u, v)
+                        }
+                    }
+                }.forEach { it.join() }
+            }
+            val recovered = recover(nodes, logFile.path)
+            for (u in 0 until nodes)
+                for (v in 0 until nodes)
+                    assertEquals(dc.connected(u, v), recovered.connected(u, v))
+        } finally {
+            logFile.delete()
+        }
+    }
+
+    @Test
+    fun truncatedRecord() {
+        val logFile = File.createTempFile("updates", ".wal")
+        try {
+            WriteAheadLog(logFile.path, 0).use { log ->
+                log.awaitDurable(log.append(logRecord(true, 0, 1)))
+                log.awaitDurable(log.append(logRecord(true, 1, 2)))
+            }
+            // a crash in the middle of the last write
+            RandomAccessFile(logFile, "rw").use { it.setLength(it.length() - 3) }
+            val recovered = recover(3, logFile.path)
+            assertTrue(recovered.connected(0, 1))
+            assertFalse(recovered.connected(1, 2))
+        } finally {
+            logFile.delete()
+        }
+    }
+
+    @Test
+    fun closedLog() {
+        val logFile = File.createTempFile("updates", ".wal")
+        try {
+            val log = WriteAheadLog(logFile.path, 0)
+            log.close()
+            try {
+                log.append(logRecord(true, 0, 1))
+                fail()
+            } catch (e: IllegalStateException) {
+            }
+        } finally {
+            logFile.delete()
+        }
+    }
+
+    private fun update(dc: DynamicConnectivity, slow: SlowConnectivity, nodes: Int, random: Random) {
+        val u = random.nextInt(nodes)
+        val v = random.nextInt(nodes)
+        if (u == v) return
+        if (random.nextInt(3) != 0) {
+            dc.addEdge(u, v)
+            slow.removeEdge(u, v)
+            slow.addEdge(u, v)
+        } else {
+            dc.removeEdge(u, v)
+            slow.removeEdge(u, v)
+        }
+    }
+
+    private fun checkConnectivity(dc: MajorDynamicConnectivity, slow: SlowConnectivity, nodes: Int) {
+        for (u in 0 until nodes)
+            for (v in 0 until nodes)
+                assertEquals(slow.sameComponent(u, v), dc.connected(u, v))
+    }
+}
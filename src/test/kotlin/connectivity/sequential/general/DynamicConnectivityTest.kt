@@ -3,6 +3,8 @@ package connectivity.sequential.general
 import connectivity.concurrent.general.*
 import connectivity.concurrent.general.major.MajorDynamicConnectivity
 import connectivity.concurrent.general.major_coarse_grained.MajorCoarseGrainedDynamicConnectivity
+import connectivity.concurrent.general.sharded.ShardPartitioning
+import connectivity.concurrent.general.sharded.ShardedDynamicConnectivity
 import connectivity.sequential.DynamicConnectivityScenarioGenerator
 import connectivity.sequential.OperationType
 import connectivity.sequential.ScenarioType
@@ -13,19 +15,31 @@ import org.junit.runner.RunWith
 import org.junit.runners.Parameterized
 import thirdparty.Aksenov239.fc.FCDynamicGraph
 import thirdparty.Aksenov239.fc.FCNBReadsGraph
+import thirdparty.Aksenov239.fc.FCParallelReadsGraph
+import thirdparty.Aksenov239.fc.FCPartitionedDynamicGraph
 
 enum class GeneralDynamicConnectivityConstructor(val construct: (size: Int) -> DynamicConnectivity) {
     SequentialDynamicConnectivity(::SequentialDynamicConnectivity),
     CoarseGrainedLockingDynamicConnectivity(::CoarseGrainedLockingDynamicConnectivity),
     NBReadsCoarseGrainedLockingDynamicConnectivity(::NBReadsCoarseGrainedLockingDynamicConnectivity),
     CoarseGrainedReadWriteLockingDynamicConnectivity(::CoarseGrainedReadWriteLockingDynamicConnectivity),
+    OptimisticCoarseGrainedLockingDynamicConnectivity(::OptimisticCoarseGrainedLockingDynamicConnectivity),
     FineGrainedLockingDynamicConnectivity(::FineGrainedLockingDynamicConnectivity),
     FineGrainedReadWriteLockingDynamicConnectivity(::FineGrainedReadWriteLockingDynamicConnectivity),
     NBReadsFineGrainedLockingDynamicConnectivity(::NBReadsFineGrainedLockingDynamicConnectivity),
     MajorDynamicConnectivity(::MajorDynamicConnectivity),
     MajorCoarseGrainedDynamicConnectivity(::MajorCoarseGrainedDynamicConnectivity),
+    OptimisticMajorCoarseGrainedDynamicConnectivity({ size -> MajorCoarseGrainedDynamicConnectivity(size, optimistic = true) }),
+    MajorDynamicConnectivityRootHints({ size -> MajorDynamicConnectivity(size, rootHints = true) }),
+    // no lock-free attempts, so that every read takes the fallback path
+    MajorDynamicConnectivityLockedReads({ size -> MajorDynamicConnectivity(size).apply { connectedTries = 0 } }),
+    NBReadsCoarseGrainedLockingLockedReads({ size -> NBReadsCoarseGrainedLockingDynamicConnectivity(size).apply { connectedTries = 0 } }),
+    HashShardedDynamicConnectivity({ size -> ShardedDynamicConnectivity(size, 3, ShardPartitioning.HASH) }),
+    RangeShardedDynamicConnectivity({ size -> ShardedDynamicConnectivity(size, 3, ShardPartitioning.RANGE) }),
     FCDynamicConnectivity( { size -> FCDynamicGraph(size, 1) }),
     FCNBReadsGraph({ size -> FCNBReadsGraph(size, 1) }),
+    FCParallelReadsGraph({ size -> FCParallelReadsGraph(size, 1) }),
+    FCPartitionedDynamicGraph({ size -> FCPartitionedDynamicGraph(size, 1, 3) }),
 }
 
 @RunWith(Parameterized::class)
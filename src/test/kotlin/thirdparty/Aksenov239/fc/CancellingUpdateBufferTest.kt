@@ -0,0 +1,142 @@
+package thirdparty.Aksenov239.fc
+
+import connectivity.concurrent.general.sharded.ShardPartitioning
+import connectivity.concurrent.general.sharded.ShardedDynamicConnectivity
+import connectivity.sequential.SlowConnectivity
+import connectivity.sequential.general.SequentialDynamicConnectivity
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import kotlin.random.Random
+
+class CancellingUpdateBufferTest {
+    @Test
+    fun randomBatches() {
+        val random = Random(32)
+        repeat(1000) {
+            val nodes = 2 + random.nextInt(10)
+            val sdg = SequentialDynamicConnectivity(nodes)
+            val slow = SlowConnectivity(nodes)
+            val batch = CancellingUpdateBuffer()
+            repeat(20) {
+                // the net effect of a batch on an edge: added, removed or unchanged if both are requested
+                val requested = HashMap<Pair<Int, Int>, Int>()
+                repeat(1 + random.nextInt(20)) {
+                    val u = random.nextInt(nodes)
+                    val v = random.nextInt(nodes)
+                    if (u != v) {
+                        val isAddition = random.nextBoolean()
+                        batch.add(isAddition, u, v)
+                        val key = Pair(minOf(u, v), maxOf(u, v))
+                        requested[key] = (requested[key] ?: 0) or (if (isAddition) 1 else 2)
+                    }
+                }
+                batch.apply(sdg)
+                for ((edge, types) in requested) {
+                    if (types == 1) {
+                        slow.removeEdge(edge.first, edge.second)
+                        slow.addEdge(edge.first, edge.second)
+                    } else if (types == 2) {
+                        slow.removeEdge(edge.first, edge.second)
+                    }
+                }
+                for (u in 0 until nodes)
+                    for (v in 0 until nodes) {
+                        assertEquals(slow.sameComponent(u, v), sdg.connected(u, v))
+                        if (u != v)
+                            assertEquals(v in slow.graph[u], sdg.containsEdge(u, v))
+                    }
+            }
+        }
+    }
+
+    @Test
+    fun spanningDeletions() {
+        val random = Random(33)
+        repeat(20) {
+            val nodes = 50 + random.nextInt(150)
+            val sdg = SequentialDynamicConnectivity(nodes)
+            val slow = SlowConnectivity(nodes)
+            val batch = CancellingUpdateBuffer()
+            // sparse graphs, so that the cuts often disconnect their components
+            repeat(nodes / 2 + random.nextInt(nodes)) {
+                val u = random.nextInt(nodes)
+                val v = random.nextInt(nodes)
+                if (u != v) {
+                    sdg.addEdge(u, v)
+                    slow.addEdge(u, v)
+                }
+            }
+            repeat(50) {
+                repeat(random.nextInt(nodes / 4)) {
+                    val u = random.nextInt(nodes)
+                    val v = random.nextInt(nodes)
+                    if (u != v && v !in slow.graph[u]) {
+                        sdg.addEdge(u, v)
+                        slow.addEdge(u, v)
+                    }
+                }
+                // mostly tree edges, so that the components are cut in several places at once
+                val edges = (0 until nodes).flatMap { u -> slow.graph[u].filter { u < it }.map { u to it } }
+                for ((u, v) in edges.shuffled(random).sortedBy { (u, v) -> if (sdg.isTreeEdge(u, v)) 0 else 1 }.take(1 + random.nextInt(nodes / 4))) {
+                    batch.add(false, u, v)
+                    slow.removeEdge(u, v)
+                }
+                batch.apply(sdg)
+                for (u in 0 until nodes)
+                    for (v in 0 until nodes)
+                        assertEquals(slow.sameComponent(u, v), sdg.connected(u, v))
+            }
+        }
+    }
+
+    @Test
+    fun shardBatches() {
+        val random = Random(34)
+        repeat(20) {
+            val nodes = 30 + random.nextInt(100)
+            val shardCount = 1 + random.nextInt(4)
+            val graph = ShardedDynamicConnectivity(nodes, shardCount, ShardPartitioning.values()[random.nextInt(2)])
+            val slow = SlowConnectivity(nodes)
+            val batch = CancellingUpdateBuffer()
+            repeat(50) {
+                // the inter-shard edges go to the top level directly
+                repeat(random.nextInt(nodes / 4)) {
+                    val u = random.nextInt(nodes)
+                    val v = random.nextInt(nodes)
+                    if (u != v && graph.shard(u) != graph.shard(v)) {
+                        if (random.nextBoolean()) {
+                            graph.addEdge(u, v)
+                            slow.addEdge(u, v)
+                        } else {
+                            graph.removeEdge(u, v)
+                            slow.removeEdge(u, v)
+                        }
+                    }
+                }
+                for (shard in graph.shards) {
+                    val shardEdges = (0 until nodes).flatMap { u -> slow.graph[u].filter { u < it }.map { u to it } }
+                        .filter { (u, v) -> graph.shard(u) == shard.index && graph.shard(v) == shard.index }
+                    // several cuts of the same components, and the additions that merge them
+                    for ((u, v) in shardEdges.shuffled(random).take(random.nextInt(1 + shardEdges.size / 3))) {
+                        batch.add(false, graph.local(u), graph.local(v))
+                        slow.removeEdge(u, v)
+                    }
+                    repeat(random.nextInt(nodes / 4)) {
+                        val u = random.nextInt(nodes)
+                        val v = random.nextInt(nodes)
+                        if (u != v && graph.shard(u) == shard.index && graph.shard(v) == shard.index && v !in slow.graph[u]) {
+                            batch.add(true, graph.local(u), graph.local(v))
+                            slow.addEdge(u, v)
+                        }
+                    }
+                    val stamp = shard.lock.writeLock()
+                    batch.apply(shard)
+                    shard.lock.unlockWrite(stamp)
+                }
+                for (u in 0 until nodes)
+                    for (v in 0 until nodes)
+                        assertEquals(slow.sameComponent(u, v), graph.connected(u, v))
+            }
+        }
+    }
+}